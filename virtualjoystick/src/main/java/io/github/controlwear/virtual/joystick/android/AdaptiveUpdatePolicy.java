@@ -0,0 +1,86 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+/**
+ * Delays of the adaptive update mode of a JoystickView: the refresh interval to use
+ * depending on how long the button has been held still, and the regular ticks skipped.
+ *
+ * Immutable, so the loop thread always sees a consistent set of delays.
+ * All the times are in milliseconds.
+ */
+final class AdaptiveUpdatePolicy {
+
+
+    /**
+     * Interval meaning the loop is stopped until the next motion
+     */
+    static final long STOPPED = Long.MAX_VALUE;
+
+
+    private final long mSlowInterval;
+    private final long mStillDelay;
+    private final long mIdleDelay;
+
+
+    /**
+     * @param slowInterval refresh interval once the button is held still
+     * @param stillDelay time without motion before using the slow interval
+     * @param idleDelay time without motion before stopping the loop
+     * @throws IllegalArgumentException if a delay is not positive
+     */
+    AdaptiveUpdatePolicy(long slowInterval, long stillDelay, long idleDelay) {
+        if (slowInterval <= 0 || stillDelay <= 0 || idleDelay <= 0) {
+            throw new IllegalArgumentException("adaptive update delays must be positive");
+        }
+
+        mSlowInterval = slowInterval;
+        mStillDelay = stillDelay;
+        mIdleDelay = idleDelay;
+    }
+
+
+    /**
+     * Return the interval between the start of a wait and the next tick.
+     * @param loopInterval regular refresh interval (positive)
+     * @param start time the wait started (time of the previous tick)
+     * @param now current time
+     * @param lastMotionTime time of the latest motion of the button
+     * @param busy True if the ticks are needed even with the button held still
+     *             (e.g. the rate mode moving its position while the button is deflected)
+     * @return the interval, or STOPPED to wait until the next motion
+     */
+    long getInterval(long loopInterval, long start, long now, long lastMotionTime, boolean busy) {
+        long still = now - lastMotionTime;
+
+        long interval;
+        if (busy) {
+            interval = loopInterval;
+        } else if (still >= mIdleDelay) {
+            interval = STOPPED;
+        } else if (still >= mStillDelay) {
+            interval = mSlowInterval;
+        } else {
+            interval = loopInterval;
+        }
+
+        // the button moved while waiting, no need to wait longer than the regular interval
+        if (lastMotionTime > start) {
+            interval = Math.min(interval, loopInterval);
+        }
+
+        return interval;
+    }
+
+
+    /**
+     * Return the number of regular ticks which would have been sent during a wait
+     * (the tick ending the wait is not skipped).
+     * @param loopInterval regular refresh interval (positive)
+     * @param start time the wait started
+     * @param end time the wait ended
+     * @return number of skipped ticks, zero or more
+     */
+    static long getSkippedTicks(long loopInterval, long start, long end) {
+        return Math.max(0, (end - start) / loopInterval - 1);
+    }
+}
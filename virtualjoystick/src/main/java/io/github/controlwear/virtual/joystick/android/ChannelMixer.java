@@ -0,0 +1,251 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+/**
+ * Mix the axes of one or more sticks into output channels (e.g. RC channels from 1000 to 2000µs).
+ *
+ * Each stick provides two inputs: its X axis (input 2 * stick) and its Y axis
+ * (input 2 * stick + 1), both between -1.0 and 1.0 (right and up are positive).
+ * Each channel is the weighted sum of all the inputs (the mixing matrix), limited to [-1.0, 1.0],
+ * optionally reversed, then mapped to its output range and shifted by its trim.
+ *
+ * All the values are kept in fixed-point integers so a mix does not allocate anything.
+ * This class is not thread-safe: set the sticks and mix from the same thread (e.g. in onMove).
+ */
+public class ChannelMixer {
+
+
+    /*
+    CONSTANTS
+    */
+
+    /**
+     * Number of fractional bits of the fixed-point values (1.0 is 1 << 14)
+     */
+    private static final int FIXED_SHIFT = 14;
+
+    /**
+     * Fixed-point value of 1.0
+     */
+    private static final int FIXED_ONE = 1 << FIXED_SHIFT;
+
+    /**
+     * Fixed-point value of 0.5, added before a shift to round to the nearest instead of down
+     */
+    private static final int FIXED_HALF = 1 << (FIXED_SHIFT - 1);
+
+    /**
+     * Default minimum value of a channel (in µs for a regular RC channel)
+     */
+    public static final int DEFAULT_MIN = 1000;
+
+    /**
+     * Default maximum value of a channel (in µs for a regular RC channel)
+     */
+    public static final int DEFAULT_MAX = 2000;
+
+
+    private final int mInputCount;
+    private final int mChannelCount;
+
+    /**
+     * Inputs in fixed-point between -FIXED_ONE and FIXED_ONE
+     */
+    private final int[] mInputs;
+
+    /**
+     * Mixing matrix in fixed-point, one row of mInputCount weights per channel
+     */
+    private final int[] mWeights;
+
+    // OUTPUT
+    private final int[] mTrims;
+    private final boolean[] mReversed;
+    private final int[] mMin;
+    private final int[] mMax;
+
+
+    /*
+    CONSTRUCTORS
+     */
+
+
+    /**
+     * Create a mixer with an empty mixing matrix and the default range for every channel.
+     * @param stickCount number of sticks mixed (each one provides two inputs)
+     * @param channelCount number of output channels
+     */
+    public ChannelMixer(int stickCount, int channelCount) {
+        if (stickCount < 1 || channelCount < 1) {
+            throw new IllegalArgumentException("at least one stick and one channel are needed");
+        }
+
+        mInputCount = stickCount * 2;
+        mChannelCount = channelCount;
+        mInputs = new int[mInputCount];
+        mWeights = new int[mInputCount * channelCount];
+        mTrims = new int[channelCount];
+        mReversed = new boolean[channelCount];
+        mMin = new int[channelCount];
+        mMax = new int[channelCount];
+
+        for (int i = 0; i < channelCount; i++) {
+            mMin[i] = DEFAULT_MIN;
+            mMax[i] = DEFAULT_MAX;
+        }
+    }
+
+
+    /*
+    GETTERS
+     */
+
+
+    /**
+     * Return the number of inputs (two per stick)
+     * @return number of inputs
+     */
+    public int getInputCount() {
+        return mInputCount;
+    }
+
+
+    /**
+     * Return the number of output channels
+     * @return number of channels
+     */
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+
+    /*
+    INPUTS
+     */
+
+
+    /**
+     * Set the state of a stick as given by OnMoveListener.onMove
+     * @param stick index of the stick
+     * @param angle angle of the stick (counter-clock, 0 is right)
+     * @param strength strength of the stick between 0 and 100
+     */
+    public void setStick(int stick, int angle, int strength) {
+        double radians = Math.toRadians(angle);
+        double length = Math.min(strength, 100) * FIXED_ONE / 100.0;
+
+        mInputs[stick * 2] = (int) Math.round(length * Math.cos(radians));
+        mInputs[stick * 2 + 1] = (int) Math.round(length * Math.sin(radians));
+    }
+
+
+    /**
+     * Set a single input
+     * @param input index of the input (2 * stick for X, 2 * stick + 1 for Y)
+     * @param value value between -1.0 and 1.0 (limited to this range)
+     */
+    public void setInput(int input, float value) {
+        mInputs[input] = toFixed(Math.max(-1.0f, Math.min(1.0f, value)));
+    }
+
+
+    /*
+    SETTERS
+     */
+
+
+    /**
+     * Set how much an input contributes to a channel (a cell of the mixing matrix)
+     * @param channel index of the channel
+     * @param input index of the input (2 * stick for X, 2 * stick + 1 for Y)
+     * @param weight weight of the input, usually between -1.0 and 1.0
+     */
+    public void setWeight(int channel, int input, float weight) {
+        if (input < 0 || input >= mInputCount) {
+            throw new IndexOutOfBoundsException("input " + input + " out of " + mInputCount);
+        }
+        mWeights[channel * mInputCount + input] = toFixed(weight);
+    }
+
+
+    /**
+     * Set the trim of a channel, added to its output before limiting it to its range
+     * @param channel index of the channel
+     * @param trim trim in output units (e.g. µs)
+     */
+    public void setTrim(int channel, int trim) {
+        mTrims[channel] = trim;
+    }
+
+
+    /**
+     * Set whether a channel is reversed (its mixed value is negated before the range mapping)
+     * @param channel index of the channel
+     * @param reversed True to reverse the channel
+     */
+    public void setReversed(int channel, boolean reversed) {
+        mReversed[channel] = reversed;
+    }
+
+
+    /**
+     * Set the output range of a channel. -1.0 is mapped to min, 0 to the middle and 1.0 to max.
+     * Default is 1000 to 2000.
+     * @param channel index of the channel
+     * @param min output value of -1.0
+     * @param max output value of 1.0 (greater than min)
+     */
+    public void setRange(int channel, int min, int max) {
+        if (max <= min) {
+            throw new IllegalArgumentException("max must be greater than min");
+        }
+        mMin[channel] = min;
+        mMax[channel] = max;
+    }
+
+
+    /*
+    MIX
+     */
+
+
+    /**
+     * Compute every channel from the current inputs. Nothing is allocated.
+     * @param out array receiving the channels (at least getChannelCount() long)
+     * @return out, for convenience
+     */
+    public int[] mix(int[] out) {
+        for (int channel = 0; channel < mChannelCount; channel++) {
+            long sum = 0;
+            int row = channel * mInputCount;
+            for (int input = 0; input < mInputCount; input++) {
+                sum += (long) mWeights[row + input] * mInputs[input];
+            }
+
+            long value = (sum + FIXED_HALF) >> FIXED_SHIFT;
+            if (value > FIXED_ONE) {
+                value = FIXED_ONE;
+            } else if (value < -FIXED_ONE) {
+                value = -FIXED_ONE;
+            }
+
+            if (mReversed[channel]) {
+                value = -value;
+            }
+
+            int min = mMin[channel];
+            int max = mMax[channel];
+            // (min + max + (max - min) * value) / 2, rounded once to the nearest
+            long mapped = (((long) min + max) << FIXED_SHIFT) + (max - min) * value + FIXED_ONE;
+            mapped = (mapped >> (FIXED_SHIFT + 1)) + mTrims[channel];
+
+            out[channel] = (int) Math.max(min, Math.min(max, mapped));
+        }
+        return out;
+    }
+
+
+    private static int toFixed(float value) {
+        return Math.round(value * FIXED_ONE);
+    }
+}
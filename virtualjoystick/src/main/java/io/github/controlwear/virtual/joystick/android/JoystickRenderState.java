@@ -0,0 +1,89 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Copy of everything needed to draw a JoystickView (positions, radii, image and paints),
+ * so a JoystickSurfaceView could draw a consistent frame from its render thread while the
+ * JoystickView keeps changing on the main thread.
+ * This class is not thread-safe, the copies are guarded by the JoystickView.
+ */
+final class JoystickRenderState {
+
+
+    // OFFSET (of the JoystickView in the coordinates of the surface)
+    int mOffsetX;
+    int mOffsetY;
+
+    // COORDINATE
+    int mCenterX;
+    int mCenterY;
+    int mButtonX;
+    int mButtonY;
+
+    // SIZE
+    int mButtonRadius;
+    int mBorderRadius;
+    float mBackgroundRadius;
+
+    // DRAWING
+    Bitmap mButtonBitmap;
+    final Paint mPaintCircleButton = new Paint();
+    final Paint mPaintCircleBorder = new Paint();
+    final Paint mPaintBackground = new Paint();
+    final Paint mPaintBitmapButton = new Paint();
+
+
+    /**
+     * Copy another state into this one, paints included (without allocating).
+     * @param state the state to copy
+     */
+    void set(JoystickRenderState state) {
+        mOffsetX = state.mOffsetX;
+        mOffsetY = state.mOffsetY;
+        mCenterX = state.mCenterX;
+        mCenterY = state.mCenterY;
+        mButtonX = state.mButtonX;
+        mButtonY = state.mButtonY;
+        mButtonRadius = state.mButtonRadius;
+        mBorderRadius = state.mBorderRadius;
+        mBackgroundRadius = state.mBackgroundRadius;
+        mButtonBitmap = state.mButtonBitmap;
+        mPaintCircleButton.set(state.mPaintCircleButton);
+        mPaintCircleBorder.set(state.mPaintCircleBorder);
+        mPaintBackground.set(state.mPaintBackground);
+        mPaintBitmapButton.set(state.mPaintBitmapButton);
+    }
+
+
+    /**
+     * Draw the background, the border and the button, in the same way as JoystickView.onDraw.
+     * @param canvas the canvas on which the shapes will be drawn
+     */
+    void draw(Canvas canvas) {
+        canvas.translate(mOffsetX, mOffsetY);
+
+        // Draw the background
+        canvas.drawCircle(mCenterX, mCenterY, mBackgroundRadius, mPaintBackground);
+
+        // Draw the circle border
+        canvas.drawCircle(mCenterX, mCenterY, mBorderRadius, mPaintCircleBorder);
+
+        // Draw the button from image
+        if (mButtonBitmap != null) {
+            canvas.drawBitmap(
+                    mButtonBitmap,
+                    mButtonX - mButtonRadius,
+                    mButtonY - mButtonRadius,
+                    mPaintBitmapButton
+            );
+        }
+        // Draw the button as simple circle
+        else {
+            canvas.drawCircle(mButtonX, mButtonY, mButtonRadius, mPaintCircleButton);
+        }
+    }
+}
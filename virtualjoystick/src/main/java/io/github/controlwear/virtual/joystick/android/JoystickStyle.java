@@ -0,0 +1,462 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+
+/**
+ * Immutable set of attributes of a JoystickView (colors, sizes and behaviors).
+ *
+ * A style could be read from the JV_ attributes (of a layout or a style resource) or built
+ * from code, then shared by as many JoystickView as needed and applied in one pass with
+ * {@link JoystickView#applyStyle(JoystickStyle)}.
+ */
+public final class JoystickStyle {
+
+
+    /*
+    CONSTANTS
+    */
+
+    /**
+     * Default color for button
+     */
+    private static final int DEFAULT_COLOR_BUTTON = Color.BLACK;
+
+    /**
+     * Default color for border
+     */
+    private static final int DEFAULT_COLOR_BORDER = Color.TRANSPARENT;
+
+    /**
+     * Default alpha for border
+     */
+    private static final int DEFAULT_ALPHA_BORDER = 255;
+
+    /**
+     * Default background color
+     */
+    private static final int DEFAULT_BACKGROUND_COLOR = Color.TRANSPARENT;
+
+    /**
+     * Default border's width
+     */
+    private static final int DEFAULT_WIDTH_BORDER = 3;
+
+    /**
+     * Default size of the button as a ratio of the view
+     */
+    private static final float DEFAULT_BUTTON_SIZE_RATIO = 0.25f;
+
+    /**
+     * Default size of the background as a ratio of the view
+     */
+    private static final float DEFAULT_BACKGROUND_SIZE_RATIO = 0.75f;
+
+    /**
+     * Default behavior to fixed center (not auto-defined)
+     */
+    private static final boolean DEFAULT_FIXED_CENTER = true;
+
+    /**
+     * Default behavior to auto re-center button (automatically recenter the button)
+     */
+    private static final boolean DEFAULT_AUTO_RECENTER_BUTTON = true;
+
+    /**
+     * Default behavior to button stickToBorder (button stay on the border)
+     */
+    private static final boolean DEFAULT_BUTTON_STICK_TO_BORDER = false;
+
+    /**
+     * Default behavior to enabled
+     */
+    private static final boolean DEFAULT_ENABLED = true;
+
+    /**
+     * Default behavior to low latency (touch events batched and callback only from the loop)
+     */
+    private static final boolean DEFAULT_LOW_LATENCY = false;
+
+
+    // DRAWING
+    private final int mButtonColor;
+    private final int mBorderColor;
+    private final int mBorderAlpha;
+    private final int mBackgroundColor;
+    private final int mBorderWidth;
+    private final Bitmap mButtonBitmap;
+
+    // SIZE
+    private final float mButtonSizeRatio;
+    private final float mBackgroundSizeRatio;
+
+    // BEHAVIOR
+    private final boolean mFixedCenter;
+    private final boolean mAutoReCenterButton;
+    private final boolean mButtonStickToBorder;
+    private final boolean mEnabled;
+    private final int mButtonDirection;
+    private final boolean mLowLatency;
+
+
+    private JoystickStyle(Builder builder) {
+        mButtonColor = builder.mButtonColor;
+        mBorderColor = builder.mBorderColor;
+        mBorderAlpha = builder.mBorderAlpha;
+        mBackgroundColor = builder.mBackgroundColor;
+        mBorderWidth = builder.mBorderWidth;
+        mButtonBitmap = builder.mButtonBitmap;
+        mButtonSizeRatio = builder.mButtonSizeRatio;
+        mBackgroundSizeRatio = builder.mBackgroundSizeRatio;
+        mFixedCenter = builder.mFixedCenter;
+        mAutoReCenterButton = builder.mAutoReCenterButton;
+        mButtonStickToBorder = builder.mButtonStickToBorder;
+        mEnabled = builder.mEnabled;
+        mButtonDirection = builder.mButtonDirection;
+        mLowLatency = builder.mLowLatency;
+    }
+
+
+    /*
+    FACTORIES
+     */
+
+
+    /**
+     * Read a style from the JV_ attributes of an XML tag (missing attributes get their default value).
+     * @param context The Context through which it can access the current theme, resources, etc.
+     * @param attrs The attributes of the XML tag, could be null
+     * @return the style defined by these attributes
+     */
+    public static JoystickStyle fromAttributes(Context context, AttributeSet attrs) {
+        TypedArray styledAttributes = context.getTheme().obtainStyledAttributes(
+                attrs,
+                R.styleable.JoystickView,
+                0, 0
+        );
+
+        try {
+            return fromTypedArray(styledAttributes);
+        } finally {
+            styledAttributes.recycle();
+        }
+    }
+
+
+    /**
+     * Read a style from the JV_ attributes of a style resource (missing attributes get their default value).
+     * @param context The Context through which it can access the current theme, resources, etc.
+     * @param styleRes The style resource (e.g. R.style.MyJoystick)
+     * @return the style defined by this resource
+     */
+    public static JoystickStyle fromStyle(Context context, int styleRes) {
+        TypedArray styledAttributes = context.getTheme().obtainStyledAttributes(
+                styleRes,
+                R.styleable.JoystickView
+        );
+
+        try {
+            return fromTypedArray(styledAttributes);
+        } finally {
+            styledAttributes.recycle();
+        }
+    }
+
+
+    private static JoystickStyle fromTypedArray(TypedArray a) {
+        return new Builder()
+                .setButtonColor(a.getColor(R.styleable.JoystickView_JV_buttonColor, DEFAULT_COLOR_BUTTON))
+                .setBorderColor(a.getColor(R.styleable.JoystickView_JV_borderColor, DEFAULT_COLOR_BORDER))
+                .setBorderAlpha(a.getInt(R.styleable.JoystickView_JV_borderAlpha, DEFAULT_ALPHA_BORDER))
+                .setBackgroundColor(a.getColor(R.styleable.JoystickView_JV_backgroundColor, DEFAULT_BACKGROUND_COLOR))
+                .setBorderWidth(a.getDimensionPixelSize(R.styleable.JoystickView_JV_borderWidth, DEFAULT_WIDTH_BORDER))
+                .setFixedCenter(a.getBoolean(R.styleable.JoystickView_JV_fixedCenter, DEFAULT_FIXED_CENTER))
+                .setAutoReCenterButton(a.getBoolean(R.styleable.JoystickView_JV_autoReCenterButton, DEFAULT_AUTO_RECENTER_BUTTON))
+                .setButtonStickToBorder(a.getBoolean(R.styleable.JoystickView_JV_buttonStickToBorder, DEFAULT_BUTTON_STICK_TO_BORDER))
+                .setButtonDrawable(a.getDrawable(R.styleable.JoystickView_JV_buttonImage))
+                .setEnabled(a.getBoolean(R.styleable.JoystickView_JV_enabled, DEFAULT_ENABLED))
+                .setButtonSizeRatio(getRatio(a, R.styleable.JoystickView_JV_buttonSizeRatio, DEFAULT_BUTTON_SIZE_RATIO))
+                .setBackgroundSizeRatio(getRatio(a, R.styleable.JoystickView_JV_backgroundSizeRatio, DEFAULT_BACKGROUND_SIZE_RATIO))
+                .setButtonDirection(a.getInteger(R.styleable.JoystickView_JV_buttonDirection, JoystickView.BUTTON_DIRECTION_BOTH))
+                .setLowLatency(a.getBoolean(R.styleable.JoystickView_JV_lowLatency, DEFAULT_LOW_LATENCY))
+                .build();
+    }
+
+
+    /**
+     * Read a size ratio from the attributes. A value out of range (e.g. 0% or more than 100%)
+     * gets the default value, so a layout never fails to inflate because of it.
+     */
+    private static float getRatio(TypedArray a, int index, float defaultRatio) {
+        float ratio = a.getFraction(index, 1, 1, defaultRatio);
+        return ratio > 0.0f && ratio <= 1.0f ? ratio : defaultRatio;
+    }
+
+
+    /*
+    GETTERS
+     */
+
+
+    public int getButtonColor() {
+        return mButtonColor;
+    }
+
+
+    public int getBorderColor() {
+        return mBorderColor;
+    }
+
+
+    public int getBorderAlpha() {
+        return mBorderAlpha;
+    }
+
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+
+    public int getBorderWidth() {
+        return mBorderWidth;
+    }
+
+
+    /**
+     * Return the image of the button, unscaled (each JoystickView keeps its own scaled copy)
+     * @return the image of the button or null to draw a simple circle
+     */
+    public Bitmap getButtonBitmap() {
+        return mButtonBitmap;
+    }
+
+
+    public float getButtonSizeRatio() {
+        return mButtonSizeRatio;
+    }
+
+
+    public float getBackgroundSizeRatio() {
+        return mBackgroundSizeRatio;
+    }
+
+
+    public boolean isFixedCenter() {
+        return mFixedCenter;
+    }
+
+
+    public boolean isAutoReCenterButton() {
+        return mAutoReCenterButton;
+    }
+
+
+    public boolean isButtonStickToBorder() {
+        return mButtonStickToBorder;
+    }
+
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+
+    public int getButtonDirection() {
+        return mButtonDirection;
+    }
+
+
+    public boolean isLowLatency() {
+        return mLowLatency;
+    }
+
+
+    /*
+    BUILDER
+     */
+
+
+    /**
+     * Builder of JoystickStyle, starting from the default values or from another style.
+     */
+    public static final class Builder {
+
+        private int mButtonColor = DEFAULT_COLOR_BUTTON;
+        private int mBorderColor = DEFAULT_COLOR_BORDER;
+        private int mBorderAlpha = DEFAULT_ALPHA_BORDER;
+        private int mBackgroundColor = DEFAULT_BACKGROUND_COLOR;
+        private int mBorderWidth = DEFAULT_WIDTH_BORDER;
+        private Bitmap mButtonBitmap;
+        private float mButtonSizeRatio = DEFAULT_BUTTON_SIZE_RATIO;
+        private float mBackgroundSizeRatio = DEFAULT_BACKGROUND_SIZE_RATIO;
+        private boolean mFixedCenter = DEFAULT_FIXED_CENTER;
+        private boolean mAutoReCenterButton = DEFAULT_AUTO_RECENTER_BUTTON;
+        private boolean mButtonStickToBorder = DEFAULT_BUTTON_STICK_TO_BORDER;
+        private boolean mEnabled = DEFAULT_ENABLED;
+        private int mButtonDirection = JoystickView.BUTTON_DIRECTION_BOTH;
+        private boolean mLowLatency = DEFAULT_LOW_LATENCY;
+
+
+        /**
+         * Create a builder with the default values.
+         */
+        public Builder() {
+        }
+
+
+        /**
+         * Create a builder with the values of an existing style, to derive a new one.
+         * @param style the style to start from
+         */
+        public Builder(JoystickStyle style) {
+            mButtonColor = style.mButtonColor;
+            mBorderColor = style.mBorderColor;
+            mBorderAlpha = style.mBorderAlpha;
+            mBackgroundColor = style.mBackgroundColor;
+            mBorderWidth = style.mBorderWidth;
+            mButtonBitmap = style.mButtonBitmap;
+            mButtonSizeRatio = style.mButtonSizeRatio;
+            mBackgroundSizeRatio = style.mBackgroundSizeRatio;
+            mFixedCenter = style.mFixedCenter;
+            mAutoReCenterButton = style.mAutoReCenterButton;
+            mButtonStickToBorder = style.mButtonStickToBorder;
+            mEnabled = style.mEnabled;
+            mButtonDirection = style.mButtonDirection;
+            mLowLatency = style.mLowLatency;
+        }
+
+
+        public Builder setButtonColor(int color) {
+            mButtonColor = color;
+            return this;
+        }
+
+
+        public Builder setBorderColor(int color) {
+            mBorderColor = color;
+            return this;
+        }
+
+
+        /**
+         * @param alpha the transparency of the border between 0 and 255
+         */
+        public Builder setBorderAlpha(int alpha) {
+            mBorderAlpha = alpha;
+            return this;
+        }
+
+
+        public Builder setBackgroundColor(int color) {
+            mBackgroundColor = color;
+            return this;
+        }
+
+
+        /**
+         * @param width the width of the border in pixels
+         */
+        public Builder setBorderWidth(int width) {
+            mBorderWidth = width;
+            return this;
+        }
+
+
+        /**
+         * @param bitmap the image of the button (resized by each view) or null for a simple circle
+         */
+        public Builder setButtonBitmap(Bitmap bitmap) {
+            mButtonBitmap = bitmap;
+            return this;
+        }
+
+
+        /**
+         * Set the image of the button from a drawable. Only BitmapDrawable are supported,
+         * any other drawable (or null) gives a simple circle.
+         * @param d drawable to pick the image
+         */
+        public Builder setButtonDrawable(Drawable d) {
+            mButtonBitmap = d instanceof BitmapDrawable ? ((BitmapDrawable) d).getBitmap() : null;
+            return this;
+        }
+
+
+        /**
+         * @param ratio size of the button as a fraction of the view, between 0.0 (excluded) and 1.0
+         */
+        public Builder setButtonSizeRatio(float ratio) {
+            checkRatio(ratio);
+            mButtonSizeRatio = ratio;
+            return this;
+        }
+
+
+        /**
+         * @param ratio size of the background as a fraction of the view, between 0.0 (excluded) and 1.0
+         */
+        public Builder setBackgroundSizeRatio(float ratio) {
+            checkRatio(ratio);
+            mBackgroundSizeRatio = ratio;
+            return this;
+        }
+
+
+        public Builder setFixedCenter(boolean fixedCenter) {
+            mFixedCenter = fixedCenter;
+            return this;
+        }
+
+
+        public Builder setAutoReCenterButton(boolean b) {
+            mAutoReCenterButton = b;
+            return this;
+        }
+
+
+        public Builder setButtonStickToBorder(boolean b) {
+            mButtonStickToBorder = b;
+            return this;
+        }
+
+
+        public Builder setEnabled(boolean enabled) {
+            mEnabled = enabled;
+            return this;
+        }
+
+
+        /**
+         * @param direction negative for horizontal axe, positive for vertical axe, zero for both axes
+         */
+        public Builder setButtonDirection(int direction) {
+            mButtonDirection = direction;
+            return this;
+        }
+
+
+        public Builder setLowLatency(boolean b) {
+            mLowLatency = b;
+            return this;
+        }
+
+
+        public JoystickStyle build() {
+            return new JoystickStyle(this);
+        }
+
+
+        private static void checkRatio(float ratio) {
+            if (!(ratio > 0.0f && ratio <= 1.0f)) {
+                throw new IllegalArgumentException("ratio must be between 0.0 (excluded) and 1.0");
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.util.AttributeSet;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * A SurfaceView drawing the background, the border and the button of a JoystickView
+ * from a dedicated render thread, so each new position of the stick is drawn as soon as
+ * its touch event is handled, without waiting for the traversal (measure, layout and draw)
+ * of the whole view tree.
+ *
+ * The touch events are still handled on the main thread: while the main thread is busy,
+ * no new position arrives and the surface keeps showing the last one, like onDraw would.
+ *
+ * The JoystickView still handles the touch events and owns the stick state: declare it after
+ * this surface as a sibling with the same bounds (e.g. both in a FrameLayout) so it receives
+ * the touch events, and link them with {@link #setJoystickView(JoystickView)}. Once linked,
+ * the JoystickView stops drawing in its own onDraw and hands a copy of its state to the
+ * render thread each time it changes.
+ *
+ * The surface is composited on top of the whole window (see setZOrderOnTop), so it is drawn
+ * over any view of the window in its area, siblings and overlays included.
+ */
+public class JoystickSurfaceView extends SurfaceView
+        implements
+        SurfaceHolder.Callback,
+        Runnable {
+
+
+    /**
+     * Joystick providing the state to draw (read from the render thread)
+     */
+    private volatile JoystickView mJoystickView;
+
+    /**
+     * State drawn by the render thread, copied from the joystick at the start of each frame
+     */
+    private final JoystickRenderState mFrameState = new JoystickRenderState();
+
+
+    // RENDER THREAD
+    private final Object mRenderLock = new Object();
+    private Thread mRenderThread;
+    private boolean mRunning;
+    private boolean mRenderRequested;
+
+
+    /*
+    CONSTRUCTORS
+     */
+
+
+    /**
+     * Simple constructor to use when creating a JoystickSurfaceView from code.
+     * @param context The Context the JoystickSurfaceView is running in, through which it can
+     *        access the current theme, resources, etc.
+     */
+    public JoystickSurfaceView(Context context) {
+        this(context, null);
+    }
+
+
+    /**
+     * Constructor that is called when inflating a JoystickSurfaceView from XML.
+     * @param context The Context the JoystickSurfaceView is running in, through which it can
+     *        access the current theme, resources, etc.
+     * @param attrs The attributes of the XML tag that is inflating the JoystickSurfaceView.
+     */
+    public JoystickSurfaceView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+
+    public JoystickSurfaceView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        // the surface is drawn on top of the window (not below it, where a transparent
+        // background would show a hole in the window) so only the joystick shapes are visible
+        setZOrderOnTop(true);
+        getHolder().setFormat(PixelFormat.TRANSLUCENT);
+        getHolder().addCallback(this);
+    }
+
+
+    /*
+    SETTERS
+     */
+
+
+    /**
+     * Link the JoystickView to draw. The JoystickView will stop drawing itself and will
+     * notify this surface each time it needs a new draw.
+     * @param joystickView the joystick to draw, or null to give the drawing back to the joystick
+     */
+    public void setJoystickView(JoystickView joystickView) {
+        JoystickView previous = mJoystickView;
+        if (previous != null) {
+            previous.setSurfaceRenderer(null);
+        }
+
+        mJoystickView = joystickView;
+
+        if (joystickView != null) {
+            joystickView.setSurfaceRenderer(this);
+        } else {
+            requestRender();
+        }
+    }
+
+
+    /**
+     * Ask the render thread to draw a new frame. Could be called from any thread,
+     * several requests before the next frame are merged into one.
+     */
+    public void requestRender() {
+        synchronized (mRenderLock) {
+            mRenderRequested = true;
+            mRenderLock.notify();
+        }
+    }
+
+
+    /**
+     * The offset between the joystick and this surface could have changed.
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+
+        JoystickView joystickView = mJoystickView;
+        if (changed && joystickView != null) {
+            joystickView.requestRedraw();
+        }
+    }
+
+
+    /*
+    IMPLEMENTS
+     */
+
+
+    @Override // SurfaceHolder.Callback
+    public void surfaceCreated(SurfaceHolder holder) {
+        synchronized (mRenderLock) {
+            mRunning = true;
+            mRenderRequested = true;
+        }
+
+        mRenderThread = new Thread(this, "JoystickRenderThread");
+        mRenderThread.start();
+    }
+
+
+    @Override // SurfaceHolder.Callback
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        requestRender();
+    }
+
+
+    @Override // SurfaceHolder.Callback
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        synchronized (mRenderLock) {
+            mRunning = false;
+            mRenderLock.notify();
+        }
+
+        // the surface must not be used anymore once this method returns
+        boolean retry = true;
+        while (retry) {
+            try {
+                mRenderThread.join();
+                retry = false;
+            } catch (InterruptedException e) {
+                // keep waiting for the render thread
+            }
+        }
+        mRenderThread = null;
+    }
+
+
+    @Override // Runnable
+    public void run() {
+        SurfaceHolder holder = getHolder();
+
+        while (true) {
+            // wait for a new frame to be requested
+            synchronized (mRenderLock) {
+                while (mRunning && !mRenderRequested) {
+                    try {
+                        mRenderLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                if (!mRunning) {
+                    return;
+                }
+
+                mRenderRequested = false;
+            }
+
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null) {
+                continue;
+            }
+
+            try {
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+
+                // draw only from a copy, the joystick keeps changing on the main thread
+                JoystickView joystickView = mJoystickView;
+                if (joystickView != null) {
+                    joystickView.copyRenderState(mFrameState);
+                    mFrameState.draw(canvas);
+                }
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+    }
+}
@@ -2,19 +2,21 @@ package io.github.controlwear.virtual.joystick.android;
 
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.Handler;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 
+import java.util.concurrent.locks.LockSupport;
+
 public class JoystickView extends View
         implements
         Runnable {
@@ -40,6 +42,39 @@ public class JoystickView extends View
     }
 
 
+    /**
+     * Interface definition for a callback to be invoked at a fixed rate with
+     * the JoystickView's button position resampled from the touch events
+     */
+    public interface OnResampledMoveListener {
+
+        /**
+         * Called from the resample thread (not the main thread) at the requested rate
+         * @param angle angle at the given time
+         * @param strength strength at the given time
+         * @param timestampNanos time of the sample in nanoseconds (System.nanoTime base)
+         */
+        void onResampledMove(int angle, int strength, long timestampNanos);
+    }
+
+
+    /**
+     * Interface definition for a callback to be invoked with the position
+     * integrated from the JoystickView's button deflection (rate mode)
+     */
+    public interface OnRateMoveListener {
+
+        /**
+         * Called at the refresh rate while the button is moved
+         * @param x integrated position on the X axis (right is positive)
+         * @param y integrated position on the Y axis (up is positive)
+         * @param dx change of X since the previous call
+         * @param dy change of Y since the previous call
+         */
+        void onRateMove(float x, float y, float dx, float dy);
+    }
+
+
     /**
      * Interface definition for a callback to be invoked when a JoystickView
      * is touched and held by multiple pointers.
@@ -62,56 +97,40 @@ public class JoystickView extends View
     private static final int DEFAULT_LOOP_INTERVAL = 50; // in milliseconds
 
     /**
-     * Used to allow a slight move without cancelling MultipleLongPress
-     */
-    private static final int MOVE_TOLERANCE = 10;
-
-    /**
-     * Default color for button
-     */
-    private static final int DEFAULT_COLOR_BUTTON = Color.BLACK;
-
-    /**
-     * Default color for border
-     */
-    private static final int DEFAULT_COLOR_BORDER = Color.TRANSPARENT;
-
-    /**
-     * Default alpha for border
+     * Default rate to send resampled values through callback
      */
-    private static final int DEFAULT_ALPHA_BORDER = 255;
+    private static final int DEFAULT_RESAMPLE_RATE = 250; // in hertz
 
     /**
-     * Default background color
+     * Default delay between the latest touch event and the resampled values, so there is
+     * usually a touch event on each side of the resampled time to interpolate between (one frame at 60Hz)
      */
-    private static final int DEFAULT_BACKGROUND_COLOR = Color.TRANSPARENT;
+    private static final int DEFAULT_RESAMPLE_DELAY = 16; // in milliseconds
 
     /**
-     * Default View's size
+     * Default refresh interval in adaptive update mode once the button is held still
      */
-    private static final int DEFAULT_SIZE = 200;
+    private static final int DEFAULT_ADAPTIVE_SLOW_INTERVAL = 200; // in milliseconds
 
     /**
-     * Default border's width
+     * Default time without motion before the adaptive update mode slows down
      */
-    private static final int DEFAULT_WIDTH_BORDER = 3;
+    private static final int DEFAULT_ADAPTIVE_STILL_DELAY = 500; // in milliseconds
 
     /**
-     * Default behavior to fixed center (not auto-defined)
+     * Default time without motion before the adaptive update mode stops until the next motion
      */
-    private static final boolean DEFAULT_FIXED_CENTER = true;
-
+    private static final int DEFAULT_ADAPTIVE_IDLE_DELAY = 3000; // in milliseconds
 
     /**
-     * Default behavior to auto re-center button (automatically recenter the button)
+     * Minimum release speed of a flick gesture
      */
-    private static final boolean DEFAULT_AUTO_RECENTER_BUTTON = true;
-
+    private static final int MIN_FLICK_VELOCITY = 800; // in dp per second
 
     /**
-     * Default behavior to button stickToBorder (button stay on the border)
+     * Default View's size
      */
-    private static final boolean DEFAULT_BUTTON_STICK_TO_BORDER = false;
+    private static final int DEFAULT_SIZE = 200;
 
 
     // DRAWING
@@ -122,6 +141,11 @@ public class JoystickView extends View
     private Paint mPaintBitmapButton;
     private Bitmap mButtonBitmap;
 
+    /**
+     * Image of the button before being resized, kept to resize it again without losing quality
+     */
+    private Bitmap mButtonBitmapSource;
+
 
     /**
      * Ratio use to define the size of the button
@@ -172,6 +196,13 @@ public class JoystickView extends View
     private boolean mEnabled;
 
 
+    /**
+     * Used to adapt behavior whether the touch events are delivered unbuffered and the
+     * callback is invoked straight from each touch event (true) or only from the loop (false)
+     */
+    private boolean mLowLatency;
+
+
     // SIZE
     private int mButtonRadius;
     private int mBorderRadius;
@@ -197,15 +228,112 @@ public class JoystickView extends View
     private long mLoopInterval = DEFAULT_LOOP_INTERVAL;
     private Thread mThread = new Thread(this);
 
+    /**
+     * Posted by the loop on each tick (kept to avoid allocating a Runnable every tick)
+     */
+    private final Runnable mDispatchMove = new Runnable() {
+        @Override
+        public void run() {
+            dispatchMove();
+        }
+    };
+
+    /**
+     * Posted by the loop at the deadline of a timed gesture, between two ticks
+     */
+    private final Runnable mUpdateGestures = new Runnable() {
+        @Override
+        public void run() {
+            updateGestures();
+        }
+    };
+
+
+    /**
+     * Used to adapt the refresh rate to the motion of the button (true) or to keep
+     * the fixed refresh rate (false)
+     */
+    private volatile boolean mAdaptiveUpdate;
+
+    private volatile AdaptiveUpdatePolicy mAdaptivePolicy = new AdaptiveUpdatePolicy(
+            DEFAULT_ADAPTIVE_SLOW_INTERVAL, DEFAULT_ADAPTIVE_STILL_DELAY, DEFAULT_ADAPTIVE_IDLE_DELAY);
+
+    /**
+     * Uptime of the latest motion of the button (in milliseconds)
+     */
+    private volatile long mLastMotionTime;
+
+    /**
+     * Number of regular ticks skipped by the adaptive update mode
+     */
+    private volatile long mSkippedTickCount;
+
+
+    /**
+     * Listener used to dispatch resampled OnMove event
+     */
+    private volatile OnResampledMoveListener mResampledCallback;
+
+    private long mResamplePeriod = 1000000000L / DEFAULT_RESAMPLE_RATE; // in nanoseconds
+    private long mResampleDelay = DEFAULT_RESAMPLE_DELAY * 1000000L; // in nanoseconds
+    private StickResampler mResampler = new StickResampler(); // of the current touch
+    private Thread mResampleThread;
+
+    /**
+     * Incremented on each new touch, so the resample thread of a previous touch
+     * stops sending as soon as a new touch starts (without waiting for it)
+     */
+    private volatile int mResampleGeneration;
+
+
+    /**
+     * Listener used to dispatch the integrated position (rate mode)
+     */
+    private OnRateMoveListener mRateCallback;
+
+    private final StickIntegrator mIntegrator = new StickIntegrator();
+    private double mRateLastX;
+    private double mRateLastY;
+
+    /**
+     * True while the integrated position moves (button deflected), so the adaptive
+     * update mode keeps sending it even if the button is held still
+     */
+    private volatile boolean mRateMoving;
+
+
+    /**
+     * Shared memory region where the latest state is published for other processes (could be null)
+     */
+    private SharedStatePublisher mStatePublisher;
+
 
     /**
      * Listener used to dispatch MultipleLongPress event
      */
     private OnMultipleLongPressListener mOnMultipleLongPressListener;
 
-    private final Handler mHandlerMultipleLongPress = new Handler();
-    private Runnable mRunnableMultipleLongPress;
-    private int mMoveTolerance;
+
+
+    /**
+     * Listener used to dispatch the gestures (long press, double tap, flick and hold at border)
+     */
+    private StickGestureDetector.OnGestureListener mOnGestureListener;
+
+    /**
+     * Gestures detected from the touch events by time and distance (initialized in constructor)
+     */
+    private final StickGestureDetector mGestureDetector;
+
+    /**
+     * Button position of a batched touch sample (main thread only)
+     */
+    private final float[] mHistoricalButton = new float[2];
+
+    /**
+     * Uptime of the next timed gesture, so the loop wakes up for it (in milliseconds)
+     */
+    private volatile long mGestureDeadline = StickGestureDetector.NO_DEADLINE;
 
 
     /**
@@ -223,6 +351,18 @@ public class JoystickView extends View
     private int mButtonDirection = 0;
 
 
+    /**
+     * Surface drawing this joystick from its own render thread (null when drawn by onDraw)
+     */
+    private volatile JoystickSurfaceView mSurfaceRenderer;
+
+    /**
+     * Latest complete state to draw, copied by the render thread of the surface
+     * (guarded by its own lock)
+     */
+    private final JoystickRenderState mRenderState = new JoystickRenderState();
+
+
     /*
     CONSTRUCTORS
      */
@@ -255,74 +395,61 @@ public class JoystickView extends View
     public JoystickView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        TypedArray styledAttributes = context.getTheme().obtainStyledAttributes(
-                attrs,
-                R.styleable.JoystickView,
-                0, 0
-        );
-
-        int buttonColor;
-        int borderColor;
-        int backgroundColor;
-        int borderWidth;
-        Drawable buttonDrawable;
-        try {
-            buttonColor = styledAttributes.getColor(R.styleable.JoystickView_JV_buttonColor, DEFAULT_COLOR_BUTTON);
-            borderColor = styledAttributes.getColor(R.styleable.JoystickView_JV_borderColor, DEFAULT_COLOR_BORDER);
-            mBorderAlpha = styledAttributes.getInt(R.styleable.JoystickView_JV_borderAlpha, DEFAULT_ALPHA_BORDER);
-            backgroundColor = styledAttributes.getColor(R.styleable.JoystickView_JV_backgroundColor, DEFAULT_BACKGROUND_COLOR);
-            borderWidth = styledAttributes.getDimensionPixelSize(R.styleable.JoystickView_JV_borderWidth, DEFAULT_WIDTH_BORDER);
-            mFixedCenter = styledAttributes.getBoolean(R.styleable.JoystickView_JV_fixedCenter, DEFAULT_FIXED_CENTER);
-            mAutoReCenterButton = styledAttributes.getBoolean(R.styleable.JoystickView_JV_autoReCenterButton, DEFAULT_AUTO_RECENTER_BUTTON);
-            mButtonStickToBorder = styledAttributes.getBoolean(R.styleable.JoystickView_JV_buttonStickToBorder, DEFAULT_BUTTON_STICK_TO_BORDER);
-            buttonDrawable = styledAttributes.getDrawable(R.styleable.JoystickView_JV_buttonImage);
-            mEnabled = styledAttributes.getBoolean(R.styleable.JoystickView_JV_enabled, true);
-            mButtonSizeRatio = styledAttributes.getFraction(R.styleable.JoystickView_JV_buttonSizeRatio, 1, 1, 0.25f);
-            mBackgroundSizeRatio = styledAttributes.getFraction(R.styleable.JoystickView_JV_backgroundSizeRatio, 1, 1, 0.75f);
-            mButtonDirection = styledAttributes.getInteger(R.styleable.JoystickView_JV_buttonDirection, BUTTON_DIRECTION_BOTH);
-        } finally {
-            styledAttributes.recycle();
-        }
-
         // Initialize the drawing according to attributes
 
         mPaintCircleButton = new Paint();
         mPaintCircleButton.setAntiAlias(true);
-        mPaintCircleButton.setColor(buttonColor);
         mPaintCircleButton.setStyle(Paint.Style.FILL);
 
-        if (buttonDrawable != null) {
-            if (buttonDrawable instanceof BitmapDrawable) {
-                mButtonBitmap = ((BitmapDrawable) buttonDrawable).getBitmap();
-                mPaintBitmapButton = new Paint();
-            }
-        }
-
         mPaintCircleBorder = new Paint();
         mPaintCircleBorder.setAntiAlias(true);
-        mPaintCircleBorder.setColor(borderColor);
         mPaintCircleBorder.setStyle(Paint.Style.STROKE);
-        mPaintCircleBorder.setStrokeWidth(borderWidth);
-
-        if (borderColor != Color.TRANSPARENT) {
-            mPaintCircleBorder.setAlpha(mBorderAlpha);
-        }
 
         mPaintBackground = new Paint();
         mPaintBackground.setAntiAlias(true);
-        mPaintBackground.setColor(backgroundColor);
         mPaintBackground.setStyle(Paint.Style.FILL);
 
+        applyStyle(JoystickStyle.fromAttributes(context, attrs));
 
-        // Init Runnable for MultiLongPress
 
-        mRunnableMultipleLongPress = new Runnable() {
+        // Init gesture detector (for MultiLongPress and the other gestures)
+
+        mGestureDetector = new StickGestureDetector(new StickGestureDetector.OnGestureListener() {
             @Override
-            public void run() {
+            public void onMultipleLongPress() {
                 if (mOnMultipleLongPressListener != null)
                     mOnMultipleLongPressListener.onMultipleLongPress();
+                if (mOnGestureListener != null)
+                    mOnGestureListener.onMultipleLongPress();
+            }
+
+            @Override
+            public void onDoubleTap() {
+                if (mOnGestureListener != null)
+                    mOnGestureListener.onDoubleTap();
+            }
+
+            @Override
+            public void onFlick(int angle, float velocity) {
+                if (mOnGestureListener != null)
+                    mOnGestureListener.onFlick(angle, velocity);
+            }
+
+            @Override
+            public void onHoldAtBorder(int angle) {
+                if (mOnGestureListener != null)
+                    mOnGestureListener.onHoldAtBorder(angle);
             }
-        };
+        });
+
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mGestureDetector.setLongPressTimeout(ViewConfiguration.getLongPressTimeout() * 2);
+        mGestureDetector.setTapTimeout(ViewConfiguration.getLongPressTimeout());
+        mGestureDetector.setDoubleTapTimeout(ViewConfiguration.getDoubleTapTimeout());
+        mGestureDetector.setHoldAtBorderTimeout(ViewConfiguration.getLongPressTimeout());
+        mGestureDetector.setTouchSlop(configuration.getScaledTouchSlop());
+        mGestureDetector.setDoubleTapSlop(configuration.getScaledDoubleTapSlop());
+        mGestureDetector.setMinFlickVelocity(MIN_FLICK_VELOCITY * context.getResources().getDisplayMetrics().density);
     }
 
 
@@ -334,11 +461,24 @@ public class JoystickView extends View
 
 
     /**
-     * Draw the background, the border and the button
+     * Draw the background, the border and the button, unless a JoystickSurfaceView
+     * has been attached to render them from its own thread.
      * @param canvas the canvas on which the shapes will be drawn
      */
     @Override
     protected void onDraw(Canvas canvas) {
+        if (mSurfaceRenderer == null) {
+            drawJoystick(canvas);
+        }
+    }
+
+
+    /**
+     * Draw the background, the border and the button on the main thread. An attached
+     * JoystickSurfaceView draws the same shapes from a JoystickRenderState instead.
+     * @param canvas the canvas on which the shapes will be drawn
+     */
+    private void drawJoystick(Canvas canvas) {
         // Draw the background
         canvas.drawCircle(mFixedCenterX, mFixedCenterY, mBackgroundRadius, mPaintBackground);
 
@@ -381,14 +521,40 @@ public class JoystickView extends View
 
         initPosition();
 
+        updateGeometry();
+    }
+
+
+    /**
+     * Called during layout when this view has a new size or position. The surface drawing
+     * this joystick (if any) needs the new position as well.
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+
+        if (changed) {
+            requestRedraw();
+        }
+    }
+
+
+    /**
+     * Compute the radius of all the shapes from the current size and ratios,
+     * and resize the image of the button accordingly.
+     */
+    private void updateGeometry() {
         // radius based on smallest size : height OR width
-        int d = Math.min(w, h);
+        int d = Math.min(getWidth(), getHeight());
         mButtonRadius = (int) (d / 2 * mButtonSizeRatio);
         mBorderRadius = (int) (d / 2 * mBackgroundSizeRatio);
         mBackgroundRadius = mBorderRadius - (mPaintCircleBorder.getStrokeWidth() / 2);
 
-        if (mButtonBitmap != null)
-            mButtonBitmap = Bitmap.createScaledBitmap(mButtonBitmap, mButtonRadius * 2, mButtonRadius * 2, true);
+        if (mButtonBitmapSource != null && mButtonRadius > 0) {
+            mButtonBitmap = Bitmap.createScaledBitmap(mButtonBitmapSource, mButtonRadius * 2, mButtonRadius * 2, true);
+        } else {
+            mButtonBitmap = mButtonBitmapSource;
+        }
     }
 
 
@@ -431,13 +597,17 @@ public class JoystickView extends View
             return true;
         }
 
+        int previousX = mPosX;
+        int previousY = mPosY;
+
 
         // to move the button according to the finger coordinate
         // (or limited to one axe according to direction option
         mPosY = mButtonDirection < 0 ? mCenterY : (int) event.getY(); // direction negative is horizontal axe
         mPosX = mButtonDirection > 0 ? mCenterX : (int) event.getX(); // direction positive is vertical axe
 
-        if (event.getAction() == MotionEvent.ACTION_UP) {
+        // the gesture taken by a parent (cancel) ends like a release, so the button is not left deflected
+        if (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL) {
 
             // stop listener because the finger left the touch screen
             mThread.interrupt();
@@ -460,45 +630,41 @@ public class JoystickView extends View
                 mThread.interrupt();
             }
 
+            mLastMotionTime = SystemClock.uptimeMillis();
+
             mThread = new Thread(this);
             mThread.start();
 
-            if (mCallback != null)
-                mCallback.onMove(getAngle(), getStrength());
-        }
+            // each touch has its own samples and resample thread, the previous thread (if still
+            // running) is only told to stop: it exits by itself and never sees this touch
+            if (mResampleThread != null) {
+                mResampleThread.interrupt();
+                mResampleThread = null;
+            }
 
-        // handle first touch and long press with multiple touch only
-        switch (event.getActionMasked()) {
-            case MotionEvent.ACTION_DOWN:
-                // when the first touch occurs we update the center (if set to auto-defined center)
-                if (!mFixedCenter) {
-                    mCenterX = mPosX;
-                    mCenterY = mPosY;
-                }
-                break;
+            mResampleGeneration++;
+            mResampler = new StickResampler();
+            if (mResampledCallback != null) {
+                startResampleThread(mResampler, mResampleGeneration);
+            }
 
-            case MotionEvent.ACTION_POINTER_DOWN: {
-                // when the second finger touch
-                if (event.getPointerCount() == 2) {
-                    mHandlerMultipleLongPress.postDelayed(mRunnableMultipleLongPress, ViewConfiguration.getLongPressTimeout()*2);
-                    mMoveTolerance = MOVE_TOLERANCE;
-                }
-                break;
+            // ask for the following events as soon as they are available instead of once per frame
+            // (only since Lollipop, older devices keep the regular batched delivery)
+            if (mLowLatency && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                requestUnbufferedDispatch(event);
             }
 
-            case MotionEvent.ACTION_MOVE:
-                mMoveTolerance--;
-                if (mMoveTolerance == 0) {
-                    mHandlerMultipleLongPress.removeCallbacks(mRunnableMultipleLongPress);
-                }
-                break;
+            // in low latency mode the callback is sent below, once the position is limited to the border
+            if (mCallback != null && !mLowLatency)
+                mCallback.onMove(getAngle(), getStrength());
+        }
 
-            case MotionEvent.ACTION_POINTER_UP: {
-                // when the last multiple touch is released
-                if (event.getPointerCount() == 2) {
-                    mHandlerMultipleLongPress.removeCallbacks(mRunnableMultipleLongPress);
-                }
-                break;
+        // handle first touch (long press with multiple touch is handled by the gesture detector)
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            // when the first touch occurs we update the center (if set to auto-defined center)
+            if (!mFixedCenter) {
+                mCenterX = mPosX;
+                mCenterY = mPosY;
             }
         }
 
@@ -512,20 +678,321 @@ public class JoystickView extends View
             mPosY = (int) ((mPosY - mCenterY) * mBorderRadius / abs + mCenterY);
         }
 
+        // detect gestures by time and distance from the samples batched in this touch event
+        // (moves older than the event itself), then from the touch event
+        int pointerCount = event.getPointerCount();
+        for (int i = 0; i < event.getHistorySize(); i++) {
+            double historicalAbs = getHistoricalButton(event, i, mHistoricalButton);
+            mGestureDetector.onTouchEvent(
+                    MotionEvent.ACTION_MOVE,
+                    pointerCount,
+                    event.getHistoricalX(i),
+                    event.getHistoricalY(i),
+                    pointerCount > 1 ? event.getHistoricalX(1, i) : event.getHistoricalX(i),
+                    pointerCount > 1 ? event.getHistoricalY(1, i) : event.getHistoricalY(i),
+                    mHistoricalButton[0],
+                    mHistoricalButton[1],
+                    historicalAbs >= mBorderRadius || (mButtonStickToBorder && historicalAbs != 0),
+                    event.getHistoricalEventTime(i));
+        }
+        mGestureDetector.onTouchEvent(
+                event.getActionMasked(),
+                pointerCount,
+                event.getX(),
+                event.getY(),
+                pointerCount > 1 ? event.getX(1) : event.getX(),
+                pointerCount > 1 ? event.getY(1) : event.getY(),
+                mPosX - mCenterX,
+                mPosY - mCenterY,
+                abs >= mBorderRadius || (mButtonStickToBorder && abs != 0),
+                event.getEventTime());
+        updateGestureDeadline();
+
+        if (mResampledCallback != null) {
+            addResampleSamples(event);
+        }
+
+        if (mRateCallback != null && mBorderRadius > 0) {
+            // the new deflection applies from the time of the event, not from the next dispatch
+            long eventTime = event.getEventTime() * 1000000L;
+            mIntegrator.setDeflection(eventTime,
+                    (float) (mPosX - mCenterX) / mBorderRadius,
+                    (float) (mCenterY - mPosY) / mBorderRadius);
+
+            // send the final position on release as the loop is stopped,
+            // then the position stops moving until the next touch (even if not re-centered)
+            if (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL) {
+                dispatchRateMove(eventTime);
+                mIntegrator.setDeflection(eventTime, 0, 0);
+            }
+
+            mRateMoving = mIntegrator.isMoving();
+        }
+
+        // stop the resample loop only once the release position has been added
+        if ((event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL)
+                && mResampleThread != null) {
+            mResampleThread.interrupt();
+        }
+
         if (!mAutoReCenterButton) {
             // Now update the last strength and angle if not reset to center
             if (mCallback != null)
                 mCallback.onMove(getAngle(), getStrength());
+        } else if (mLowLatency && event.getAction() != MotionEvent.ACTION_UP
+                && event.getAction() != MotionEvent.ACTION_CANCEL) {
+            // send the new strength and angle straight away without waiting for the next loop
+            // (on ACTION_UP and ACTION_CANCEL they have already been sent after the reset)
+            if (mCallback != null)
+                mCallback.onMove(getAngle(), getStrength());
         }
 
 
-        // to force a new draw
-        invalidate();
+        if (mStatePublisher != null) {
+            mStatePublisher.publish(getAngle(), getStrength(), getNormalizedX(), getNormalizedY(),
+                    event.getEventTime() * 1000000L);
+        }
+
+        boolean moved = mPosX != previousX || mPosY != previousY;
+        if (moved) {
+            mLastMotionTime = SystemClock.uptimeMillis();
+
+            // wake up the loop in case it is slowed down or stopped
+            if (mAdaptiveUpdate) {
+                LockSupport.unpark(mThread);
+            }
+        }
+
+        // to force a new draw (in adaptive update mode, only if the button has moved)
+        if (!mAdaptiveUpdate || moved || event.getAction() != MotionEvent.ACTION_MOVE) {
+            requestRedraw();
+        }
 
         return true;
     }
 
 
+    /**
+     * Add the positions of this touch event (and the ones batched in it) to the resampler,
+     * relative to the center and limited to the border like the button.
+     * Touch events use the uptime clock which is the same as System.nanoTime on Android.
+     * @param event The motion event, once the button position has been updated.
+     */
+    private void addResampleSamples(MotionEvent event) {
+        for (int i = 0; i < event.getHistorySize(); i++) {
+            getHistoricalButton(event, i, mHistoricalButton);
+            mResampler.addSample(event.getHistoricalEventTime(i) * 1000000L,
+                    mHistoricalButton[0], mHistoricalButton[1]);
+        }
+
+        mResampler.addSample(event.getEventTime() * 1000000L, mPosX - mCenterX, mPosY - mCenterY);
+    }
+
+
+    /**
+     * Compute the button position of a sample batched in a touch event, relative to the center
+     * and limited to the border like the button.
+     * @param event The motion event, once the center has been updated.
+     * @param pos Which historical sample to use.
+     * @param out array receiving the position on the X and Y axes
+     * @return the distance of the finger from the center, before being limited to the border
+     */
+    private double getHistoricalButton(MotionEvent event, int pos, float[] out) {
+        float dx = mButtonDirection > 0 ? 0 : event.getHistoricalX(pos) - mCenterX;
+        float dy = mButtonDirection < 0 ? 0 : event.getHistoricalY(pos) - mCenterY;
+
+        double abs = Math.sqrt(dx * dx + dy * dy);
+        if (abs > mBorderRadius || (mButtonStickToBorder && abs != 0)) {
+            dx = (float) (dx * mBorderRadius / abs);
+            dy = (float) (dy * mBorderRadius / abs);
+        }
+
+        out[0] = dx;
+        out[1] = dy;
+        return abs;
+    }
+
+
+    /**
+     * Send the current values to the listeners on each tick of the loop (on the main thread).
+     */
+    private void dispatchMove() {
+        if (mCallback != null)
+            mCallback.onMove(getAngle(), getStrength());
+
+        dispatchRateMove(System.nanoTime());
+
+        updateGestures();
+    }
+
+
+    /**
+     * Detect the timed gestures while the pointers are held perfectly still (no touch event).
+     */
+    private void updateGestures() {
+        mGestureDetector.update(SystemClock.uptimeMillis());
+        updateGestureDeadline();
+    }
+
+
+    /**
+     * Share the deadline of the next timed gesture with the loop, and wake it up
+     * so it waits no longer than this deadline.
+     */
+    private void updateGestureDeadline() {
+        long deadline = mGestureDetector.getNextDeadline();
+        if (deadline != mGestureDeadline) {
+            mGestureDeadline = deadline;
+            LockSupport.unpark(mThread);
+        }
+    }
+
+
+    /**
+     * Start the resample thread of a new touch.
+     * @param resampler the samples of this touch
+     * @param generation the generation of this touch
+     */
+    private void startResampleThread(final StickResampler resampler, final int generation) {
+        mResampleThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runResampleLoop(resampler, generation, new float[2]);
+            }
+        });
+        mResampleThread.start();
+    }
+
+
+    /**
+     * Send resampled values at a fixed rate until interrupted. The samples are evenly
+     * spaced on a grid of deadlines and the ticks missed (when this thread is late)
+     * are skipped to stay on the grid. When interrupted, the newest sample is sent once
+     * so the listener always ends with the release position.
+     * @param resampler the samples of the touch of this thread
+     * @param generation the generation of the touch of this thread
+     * @param position the position resampled, owned by this thread
+     */
+    private void runResampleLoop(StickResampler resampler, int generation, float[] position) {
+        long period = mResamplePeriod;
+        long delay = mResampleDelay;
+        long deadline = System.nanoTime();
+
+        while (true) {
+            long now = System.nanoTime();
+            while (now < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                if (Thread.interrupted()) {
+                    dispatchResampled(resampler, generation, resampler.getNewestTime(), position);
+                    return;
+                }
+                now = System.nanoTime();
+            }
+
+            dispatchResampled(resampler, generation, deadline - delay, position);
+
+            deadline += period;
+            if (now - deadline > period) {
+                deadline += (now - deadline) / period * period;
+            }
+
+            if (Thread.interrupted()) {
+                dispatchResampled(resampler, generation, resampler.getNewestTime(), position);
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Send the position resampled at the given time, unless a new touch has started since.
+     */
+    private void dispatchResampled(StickResampler resampler, int generation, long timeNanos, float[] position) {
+        OnResampledMoveListener callback = mResampledCallback;
+        if (callback == null || generation != mResampleGeneration
+                || !resampler.resample(timeNanos, position)) {
+            return;
+        }
+
+        float dx = position[0];
+        float dy = position[1];
+        callback.onResampledMove(getAngle(dx, dy), getStrength(dx, dy), timeNanos);
+    }
+
+
+    /**
+     * Send the position integrated up to the given time to the rate listener. The integration
+     * is only extrapolated to this time, so a touch event delivered later but timestamped
+     * before it still applies from its own time.
+     * Touch events use the uptime clock which is the same as System.nanoTime on Android.
+     * @param timeNanos current time in nanoseconds
+     */
+    private void dispatchRateMove(long timeNanos) {
+        if (mRateCallback == null) {
+            return;
+        }
+
+        double x = mIntegrator.getX(timeNanos);
+        double y = mIntegrator.getY(timeNanos);
+        mRateCallback.onRateMove((float) x, (float) y, (float) (x - mRateLastX), (float) (y - mRateLastY));
+        mRateLastX = x;
+        mRateLastY = y;
+    }
+
+
+    /**
+     * Ask for a new draw, either to the attached JoystickSurfaceView render thread
+     * or to the regular view system. Called on the main thread once the state is complete
+     * (e.g. at the end of a touch event), so the render thread never sees a partial update.
+     */
+    void requestRedraw() {
+        JoystickSurfaceView renderer = mSurfaceRenderer;
+        if (renderer != null) {
+            updateRenderState(renderer);
+            renderer.requestRender();
+        } else {
+            invalidate();
+        }
+    }
+
+
+    /**
+     * Copy the current state to draw into the render state shared with the surface.
+     * @param renderer the surface drawing this joystick
+     */
+    private void updateRenderState(JoystickSurfaceView renderer) {
+        synchronized (mRenderState) {
+            mRenderState.mOffsetX = getLeft() - renderer.getLeft();
+            mRenderState.mOffsetY = getTop() - renderer.getTop();
+            mRenderState.mCenterX = mFixedCenterX;
+            mRenderState.mCenterY = mFixedCenterY;
+            mRenderState.mButtonX = mPosX + mFixedCenterX - mCenterX;
+            mRenderState.mButtonY = mPosY + mFixedCenterY - mCenterY;
+            mRenderState.mButtonRadius = mButtonRadius;
+            mRenderState.mBorderRadius = mBorderRadius;
+            mRenderState.mBackgroundRadius = mBackgroundRadius;
+            mRenderState.mButtonBitmap = mButtonBitmap;
+            mRenderState.mPaintCircleButton.set(mPaintCircleButton);
+            mRenderState.mPaintCircleBorder.set(mPaintCircleBorder);
+            mRenderState.mPaintBackground.set(mPaintBackground);
+            if (mPaintBitmapButton != null) {
+                mRenderState.mPaintBitmapButton.set(mPaintBitmapButton);
+            }
+        }
+    }
+
+
+    /**
+     * Copy the latest complete state to draw. Called from the render thread of the surface.
+     * @param state the state of the render thread to fill
+     */
+    void copyRenderState(JoystickRenderState state) {
+        synchronized (mRenderState) {
+            state.set(mRenderState);
+        }
+    }
+
+
     /*
     GETTERS
      */
@@ -536,7 +1003,18 @@ public class JoystickView extends View
      * @return the angle of the button
      */
     private int getAngle() {
-        int angle = (int) Math.toDegrees(Math.atan2(mCenterY - mPosY, mPosX - mCenterX));
+        return getAngle(mPosX - mCenterX, mPosY - mCenterY);
+    }
+
+
+    /**
+     * Process the angle of a position relative to the center.
+     * @param dx position on the X axis relative to the center
+     * @param dy position on the Y axis relative to the center (downward like the view)
+     * @return the angle of this position
+     */
+    private int getAngle(float dx, float dy) {
+        int angle = (int) Math.toDegrees(Math.atan2(-dy, dx));
         return angle < 0 ? angle + 360 : angle; // make it as a regular counter-clock protractor
     }
 
@@ -552,6 +1030,17 @@ public class JoystickView extends View
     }
 
 
+    /**
+     * Process the strength of a position relative to the center.
+     * @param dx position on the X axis relative to the center
+     * @param dy position on the Y axis relative to the center
+     * @return the strength of this position
+     */
+    private int getStrength(float dx, float dy) {
+        return (int) (100 * Math.sqrt(dx * dx + dy * dy) / mBorderRadius);
+    }
+
+
     /**
      * Reset the button position to the center.
      */
@@ -646,6 +1135,34 @@ public class JoystickView extends View
     }
 
 
+    /**
+     * Return the current behavior of the low latency mode
+     * @return True if the touch events are unbuffered and sent straight to the callback
+     */
+    public boolean isLowLatency() {
+        return mLowLatency;
+    }
+
+
+    /**
+     * Return the current behavior of the adaptive update mode
+     * @return True if the refresh rate follows the motion of the button
+     */
+    public boolean isAdaptiveUpdate() {
+        return mAdaptiveUpdate;
+    }
+
+
+    /**
+     * Return the number of regular ticks (one every loop interval) which have not been
+     * sent by the adaptive update mode because the button was held still
+     * @return number of skipped ticks since the joystick has been created
+     */
+    public long getSkippedTickCount() {
+        return mSkippedTickCount;
+    }
+
+
     /**
      * Return the alpha of the border
      * @return it should be an integer between 0 and 255 previously set
@@ -654,6 +1171,31 @@ public class JoystickView extends View
         return mBorderAlpha;
     }
 
+
+    /**
+     * Return a snapshot of the current attributes of this JoystickView, to share them
+     * with other joysticks or to derive a new style from them.
+     * @return the current style
+     */
+    public JoystickStyle getStyle() {
+        return new JoystickStyle.Builder()
+                .setButtonColor(mPaintCircleButton.getColor())
+                .setBorderColor(mPaintCircleBorder.getColor())
+                .setBorderAlpha(mBorderAlpha)
+                .setBackgroundColor(mPaintBackground.getColor())
+                .setBorderWidth((int) mPaintCircleBorder.getStrokeWidth())
+                .setButtonBitmap(mButtonBitmapSource)
+                .setButtonSizeRatio(mButtonSizeRatio)
+                .setBackgroundSizeRatio(mBackgroundSizeRatio)
+                .setFixedCenter(mFixedCenter)
+                .setAutoReCenterButton(mAutoReCenterButton)
+                .setButtonStickToBorder(mButtonStickToBorder)
+                .setEnabled(mEnabled)
+                .setButtonDirection(mButtonDirection)
+                .setLowLatency(mLowLatency)
+                .build();
+    }
+
     /*
     SETTERS
      */
@@ -666,30 +1208,69 @@ public class JoystickView extends View
     public void setButtonDrawable(Drawable d) {
         if (d != null) {
             if (d instanceof BitmapDrawable) {
-                mButtonBitmap = ((BitmapDrawable) d).getBitmap();
-
-                if (mButtonRadius != 0) {
-                    mButtonBitmap = Bitmap.createScaledBitmap(
-                            mButtonBitmap,
-                            mButtonRadius * 2,
-                            mButtonRadius * 2,
-                            true);
-                }
+                mButtonBitmapSource = ((BitmapDrawable) d).getBitmap();
+                updateGeometry();
 
-                if (mPaintBitmapButton != null)
+                if (mPaintBitmapButton == null)
                     mPaintBitmapButton = new Paint();
+
+                requestRedraw();
             }
         }
     }
 
 
+    /**
+     * Apply all the attributes of a style in one pass: the shapes are computed again
+     * and drawn only once, whatever the number of attributes changed.
+     * The same style could be applied to several JoystickView.
+     * @param style the style to apply
+     */
+    public void applyStyle(JoystickStyle style) {
+        // drawing
+        mPaintCircleButton.setColor(style.getButtonColor());
+
+        mBorderAlpha = style.getBorderAlpha();
+        mPaintCircleBorder.setColor(style.getBorderColor());
+        if (style.getBorderColor() != Color.TRANSPARENT) {
+            mPaintCircleBorder.setAlpha(mBorderAlpha);
+        }
+        mPaintCircleBorder.setStrokeWidth(style.getBorderWidth());
+
+        mPaintBackground.setColor(style.getBackgroundColor());
+
+        mButtonBitmapSource = style.getButtonBitmap();
+        if (mButtonBitmapSource != null && mPaintBitmapButton == null) {
+            mPaintBitmapButton = new Paint();
+        }
+
+        // size
+        mButtonSizeRatio = style.getButtonSizeRatio();
+        mBackgroundSizeRatio = style.getBackgroundSizeRatio();
+
+        // behavior
+        if (style.isFixedCenter() && !mFixedCenter) {
+            initPosition();
+        }
+        mFixedCenter = style.isFixedCenter();
+        mAutoReCenterButton = style.isAutoReCenterButton();
+        mButtonStickToBorder = style.isButtonStickToBorder();
+        mEnabled = style.isEnabled();
+        mButtonDirection = style.getButtonDirection();
+        mLowLatency = style.isLowLatency();
+
+        updateGeometry();
+        requestRedraw();
+    }
+
+
     /**
      * Set the button color for this JoystickView.
      * @param color the color of the button
      */
     public void setButtonColor(int color) {
         mPaintCircleButton.setColor(color);
-        invalidate();
+        requestRedraw();
     }
 
 
@@ -702,7 +1283,7 @@ public class JoystickView extends View
         if (color != Color.TRANSPARENT) {
             mPaintCircleBorder.setAlpha(mBorderAlpha);
         }
-        invalidate();
+        requestRedraw();
     }
 
 
@@ -713,7 +1294,7 @@ public class JoystickView extends View
     public void setBorderAlpha(int alpha) {
         mBorderAlpha = alpha;
         mPaintCircleBorder.setAlpha(alpha);
-        invalidate();
+        requestRedraw();
     }
 
 
@@ -724,7 +1305,7 @@ public class JoystickView extends View
     @Override
     public void setBackgroundColor(int color) {
         mPaintBackground.setColor(color);
-        invalidate();
+        requestRedraw();
     }
 
 
@@ -735,7 +1316,7 @@ public class JoystickView extends View
     public void setBorderWidth(int width) {
         mPaintCircleBorder.setStrokeWidth(width);
         mBackgroundRadius = mBorderRadius - (width / 2.0f);
-        invalidate();
+        requestRedraw();
     }
 
 
@@ -759,6 +1340,94 @@ public class JoystickView extends View
     }
 
 
+    /**
+     * Register a callback to be invoked at 250Hz with the button position resampled
+     * from the touch events
+     * @param l The callback that will run
+     */
+    public void setOnResampledMoveListener(OnResampledMoveListener l) {
+        setOnResampledMoveListener(l, DEFAULT_RESAMPLE_RATE);
+    }
+
+
+    /**
+     * Register a callback to be invoked at a fixed rate with the button position resampled
+     * from the touch events. The callback runs on a dedicated thread (not the main thread)
+     * while the joystick is touched.
+     * @param l The callback that will run
+     * @param rate Number of values sent per second (in hertz)
+     */
+    public void setOnResampledMoveListener(OnResampledMoveListener l, int rate) {
+        if (rate > 0) {
+            mResamplePeriod = 1000000000L / rate;
+        }
+        mResampledCallback = l;
+    }
+
+
+    /**
+     * Set the delay between the touch events and the resampled values. A longer delay
+     * makes the values smoother (interpolated between two touch events) but late.
+     * Default is 16ms (one frame at 60Hz), zero holds the latest touch event.
+     * @param delay delay in milliseconds
+     */
+    public void setResampleDelay(int delay) {
+        if (delay >= 0) {
+            mResampleDelay = delay * 1000000L;
+        }
+    }
+
+
+    /**
+     * Register a callback to be invoked with the position integrated from the button
+     * deflection (rate mode), with a linear response and 100 units per second at full deflection
+     * @param l The callback that will run
+     */
+    public void setOnRateMoveListener(OnRateMoveListener l) {
+        setOnRateMoveListener(l, 100, 0);
+    }
+
+
+    /**
+     * Register a callback to be invoked with the position integrated from the button
+     * deflection (rate mode). The integration uses the time of the touch events and
+     * a fixed timestep, so the position does not depend on the refresh rate or its jitter.
+     * @param l The callback that will run (at the refresh rate of setOnMoveListener)
+     * @param maxRate Units per second when the button is on the border
+     * @param expo Response curve from linear (0.0) to cubic (1.0) for a finer control around the center
+     */
+    public void setOnRateMoveListener(OnRateMoveListener l, float maxRate, float expo) {
+        mIntegrator.setMaxRate(maxRate);
+        mIntegrator.setExpo(expo);
+        mRateCallback = l;
+
+        if (l == null) {
+            mRateMoving = false;
+        }
+    }
+
+
+    /**
+     * Move the position integrated by the rate mode back to the origin (0, 0)
+     */
+    public void resetRatePosition() {
+        mIntegrator.setPosition(0, 0);
+        mRateLastX = 0;
+        mRateLastY = 0;
+    }
+
+
+    /**
+     * Publish the state of this JoystickView (angle, strength, normalized coordinates and time)
+     * into a shared memory region on each touch event, so it could be read from another
+     * process with a SharedStateReader without any IPC per value.
+     * @param publisher The publisher of the shared region, or null to stop publishing
+     */
+    public void setSharedStatePublisher(SharedStatePublisher publisher) {
+        mStatePublisher = publisher;
+    }
+
+
     /**
      * Register a callback to be invoked when this JoystickView is touch and held by multiple pointers
      * @param l The callback that will run
@@ -768,6 +1437,16 @@ public class JoystickView extends View
     }
 
 
+    /**
+     * Register a callback to be invoked when a gesture is detected on this JoystickView:
+     * long press by multiple pointers, double tap, flick or hold at the border
+     * @param l The callback that will run (e.g. a StickGestureDetector.SimpleOnGestureListener)
+     */
+    public void setOnGestureListener(StickGestureDetector.OnGestureListener l) {
+        mOnGestureListener = l;
+    }
+
+
     /**
      * Set the joystick center's behavior (fixed or auto-defined)
      * @param fixedCenter True for fixed center, False for auto-defined center based on touch down
@@ -778,7 +1457,7 @@ public class JoystickView extends View
             initPosition();
         }
         mFixedCenter = fixedCenter;
-        invalidate();
+        requestRedraw();
     }
 
 
@@ -799,6 +1478,8 @@ public class JoystickView extends View
     public void setButtonSizeRatio(float newRatio) {
         if (newRatio > 0.0f & newRatio <= 1.0f) {
             mButtonSizeRatio = newRatio;
+            updateGeometry();
+            requestRedraw();
         }
     }
 
@@ -812,6 +1493,8 @@ public class JoystickView extends View
     public void setBackgroundSizeRatio(float newRatio) {
         if (newRatio > 0.0f & newRatio <= 1.0f) {
             mBackgroundSizeRatio = newRatio;
+            updateGeometry();
+            requestRedraw();
         }
     }
 
@@ -834,6 +1517,48 @@ public class JoystickView extends View
     }
 
 
+    /**
+     * Set the current behavior of the low latency mode. When true, the touch events are
+     * requested unbuffered (instead of batched once per frame, since Lollipop only) and
+     * the callback is invoked straight from each touch event, in addition to the regular
+     * loop which keeps sending the values at the refresh rate.
+     * @param b True to reduce the input latency or False (default) for the regular behavior
+     */
+    public void setLowLatency(boolean b) {
+        mLowLatency = b;
+    }
+
+
+    /**
+     * Set the current behavior of the adaptive update mode, with the default delays:
+     * slowed down to every 200ms after 500ms without motion, and stopped after 3s.
+     * @param b True to adapt the refresh rate to the motion or False (default) for a fixed refresh rate
+     */
+    public void setAdaptiveUpdate(boolean b) {
+        setAdaptiveUpdate(b, DEFAULT_ADAPTIVE_SLOW_INTERVAL, DEFAULT_ADAPTIVE_STILL_DELAY, DEFAULT_ADAPTIVE_IDLE_DELAY);
+    }
+
+
+    /**
+     * Set the current behavior of the adaptive update mode. When true, the callback is sent
+     * at the regular refresh rate while the button moves, at a slower rate once the button
+     * is held still and not at all once held still long enough (until the next motion).
+     * The joystick is also redrawn only when the button moves.
+     * @param b True to adapt the refresh rate to the motion or False (default) for a fixed refresh rate
+     * @param slowInterval Refresh rate in milliseconds once the button is held still
+     * @param stillDelay Time in milliseconds without motion before using the slow refresh rate
+     * @param idleDelay Time in milliseconds without motion before stopping the callback
+     * @throws IllegalArgumentException if a delay is not positive
+     */
+    public void setAdaptiveUpdate(boolean b, int slowInterval, int stillDelay, int idleDelay) {
+        mAdaptivePolicy = new AdaptiveUpdatePolicy(slowInterval, stillDelay, idleDelay);
+        mAdaptiveUpdate = b;
+
+        // let the loop take the new delays into account
+        LockSupport.unpark(mThread);
+    }
+
+
     /**
      * Set the current authorized direction for the button to move
      * @param direction the value will define the authorized direction:
@@ -846,6 +1571,22 @@ public class JoystickView extends View
     }
 
 
+    /**
+     * Attach (or detach with null) the surface in charge of drawing this joystick.
+     * Called by JoystickSurfaceView.setJoystickView.
+     * @param renderer the surface rendering this joystick, or null to draw it in onDraw
+     */
+    void setSurfaceRenderer(JoystickSurfaceView renderer) {
+        mSurfaceRenderer = renderer;
+
+        // redraw the view itself (to clear or restore the shapes) and the new surface if any
+        invalidate();
+        if (renderer != null) {
+            requestRedraw();
+        }
+    }
+
+
     /*
     IMPLEMENTS
      */
@@ -854,18 +1595,74 @@ public class JoystickView extends View
     @Override // Runnable
     public void run() {
         while (!Thread.interrupted()) {
-            post(new Runnable() {
-                public void run() {
-                    if (mCallback != null)
-                        mCallback.onMove(getAngle(), getStrength());
-                }
-            });
+            tick();
 
-            try {
-                Thread.sleep(mLoopInterval);
-            } catch (InterruptedException e) {
+            if (!waitNextTick()) {
                 break;
             }
         }
     }
+
+
+    /**
+     * Work of the loop on each tick: post the values to send on the main thread.
+     */
+    void tick() {
+        post(mDispatchMove);
+    }
+
+
+    /**
+     * Wait before the next tick: the loop interval or, in adaptive update mode, the regular
+     * loop interval while the button moves, the slow interval once held still and until the
+     * next motion once held still long enough (but never while the rate position moves).
+     * A motion wakes up the loop straight away.
+     * While waiting, the timed gestures are updated at their own deadline (whatever the interval).
+     * @return False if the loop has been interrupted, otherwise True
+     */
+    private boolean waitNextTick() {
+        long start = SystemClock.uptimeMillis();
+        long loopInterval = Math.max(1, mLoopInterval);
+        long postedDeadline = StickGestureDetector.NO_DEADLINE;
+
+        while (true) {
+            long now = SystemClock.uptimeMillis();
+            long interval = mAdaptiveUpdate
+                    ? mAdaptivePolicy.getInterval(loopInterval, start, now, mLastMotionTime, mRateMoving)
+                    : loopInterval;
+
+            if (now - start >= interval) {
+                break;
+            }
+
+            long wait = interval == AdaptiveUpdatePolicy.STOPPED ? Long.MAX_VALUE : start + interval - now;
+
+            // a new deadline wakes up the loop, a passed one is posted once
+            long gestureDeadline = mGestureDeadline;
+            if (gestureDeadline != StickGestureDetector.NO_DEADLINE) {
+                if (gestureDeadline > now) {
+                    wait = Math.min(wait, gestureDeadline - now);
+                } else if (gestureDeadline != postedDeadline) {
+                    postedDeadline = gestureDeadline;
+                    post(mUpdateGestures);
+                }
+            }
+
+            if (wait == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, wait * 1000000L);
+            }
+
+            if (Thread.interrupted()) {
+                return false;
+            }
+        }
+
+        // every regular tick which would have been sent while waiting is skipped
+        if (mAdaptiveUpdate) {
+            mSkippedTickCount += AdaptiveUpdatePolicy.getSkippedTicks(loopInterval, start, SystemClock.uptimeMillis());
+        }
+        return true;
+    }
 }
\ No newline at end of file
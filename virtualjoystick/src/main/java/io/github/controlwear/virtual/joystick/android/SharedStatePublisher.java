@@ -0,0 +1,152 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Publish the latest state of a JoystickView into a shared memory region, so a consumer
+ * in another process could read it with a {@link SharedStateReader} without any IPC per value.
+ *
+ * The region could be a memory-mapped file (see {@link #map(File)}) or, since Android 8.1,
+ * an android.os.SharedMemory sent once to the consumer and mapped with mapReadWrite().
+ *
+ * The region uses a seqlock layout (little endian, {@link #SIZE} bytes):
+ * <pre>
+ *  0  int   magic (0x4A565331)
+ *  4  int   layout version (1)
+ *  8  int   sequence, odd while a state is being written
+ * 12  int   angle
+ * 16  int   strength
+ * 20  int   normalized X (0 to 100)
+ * 24  int   normalized Y (0 to 100)
+ * 28  int   unused
+ * 32  long  timestamp in nanoseconds (uptime clock)
+ * </pre>
+ * A reader reads the sequence, the values and the sequence again, and keeps the values
+ * only if both sequences are equal and even.
+ */
+public class SharedStatePublisher {
+
+
+    /*
+    LAYOUT
+    */
+
+    /**
+     * Size of the shared region in bytes
+     */
+    public static final int SIZE = 40;
+
+    static final int MAGIC = 0x4A565331; // "JVS1"
+    static final int VERSION = 1;
+
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_SEQUENCE = 8;
+    static final int OFFSET_ANGLE = 12;
+    static final int OFFSET_STRENGTH = 16;
+    static final int OFFSET_X = 20;
+    static final int OFFSET_Y = 24;
+    static final int OFFSET_TIMESTAMP = 32;
+
+
+    /**
+     * Written then read by fullFence() to order the accesses to the shared region
+     */
+    private static volatile int sFence;
+
+
+    private final ByteBuffer mBuffer;
+    private int mSequence;
+
+
+    /*
+    CONSTRUCTORS
+     */
+
+
+    /**
+     * Create a publisher writing into a shared region, and initialize its header.
+     * @param buffer the shared region (at least SIZE bytes), usually a direct or mapped buffer
+     */
+    public SharedStatePublisher(ByteBuffer buffer) {
+        if (buffer.capacity() < SIZE) {
+            throw new IllegalArgumentException("the shared region needs at least " + SIZE + " bytes");
+        }
+
+        mBuffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        mSequence = mBuffer.getInt(OFFSET_SEQUENCE) & ~1; // keep counting after a previous publisher
+
+        mBuffer.putInt(OFFSET_SEQUENCE, mSequence + 1);
+        fullFence();
+        mBuffer.putInt(OFFSET_MAGIC, MAGIC);
+        mBuffer.putInt(OFFSET_VERSION, VERSION);
+        fullFence();
+        mBuffer.putInt(OFFSET_SEQUENCE, mSequence += 2);
+    }
+
+
+    /**
+     * Create a publisher writing into a memory-mapped file (created or resized to SIZE bytes).
+     * @param file the file shared with the consumer
+     * @return the publisher writing into this file
+     * @throws IOException if the file can not be opened or mapped
+     */
+    public static SharedStatePublisher map(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(SIZE);
+            // the mapping stays valid once the file is closed
+            return new SharedStatePublisher(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+
+    /*
+    PUBLISH
+     */
+
+
+    /**
+     * Write a new state. Nothing is allocated and the readers are never blocked.
+     * @param angle angle of the button
+     * @param strength strength of the button
+     * @param x normalized X coordinate of the button
+     * @param y normalized Y coordinate of the button
+     * @param timestampNanos time of the state in nanoseconds
+     */
+    public synchronized void publish(int angle, int strength, int x, int y, long timestampNanos) {
+        // odd sequence: readers will retry until the state is fully written
+        mBuffer.putInt(OFFSET_SEQUENCE, mSequence + 1);
+        fullFence();
+
+        mBuffer.putInt(OFFSET_ANGLE, angle);
+        mBuffer.putInt(OFFSET_STRENGTH, strength);
+        mBuffer.putInt(OFFSET_X, x);
+        mBuffer.putInt(OFFSET_Y, y);
+        mBuffer.putLong(OFFSET_TIMESTAMP, timestampNanos);
+
+        fullFence();
+        mSequence += 2;
+        mBuffer.putInt(OFFSET_SEQUENCE, mSequence);
+    }
+
+
+    /**
+     * Order the accesses to the shared region before and after this call. A volatile write
+     * followed by a volatile read acts as a full barrier on ART and HotSpot
+     * (no VarHandle fences before Android 13).
+     * @return the value read, only to make sure the read is kept
+     */
+    static int fullFence() {
+        sFence = 0;
+        return sFence;
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read the state published by a {@link SharedStatePublisher}, possibly from another process.
+ * It only depends on java.nio, so it could be used outside of Android as well.
+ *
+ * Call {@link #read()} then the getters: the values are copied into this reader so
+ * nothing is allocated. A reader is not thread-safe, use one per thread.
+ */
+public class SharedStateReader {
+
+
+    /**
+     * Default number of attempts when the state is being written while read
+     */
+    private static final int DEFAULT_MAX_ATTEMPTS = 64;
+
+
+    private final ByteBuffer mBuffer;
+    private final int mMaxAttempts;
+
+    // STATE
+    private int mSequence;
+    private int mAngle;
+    private int mStrength;
+    private int mX;
+    private int mY;
+    private long mTimestamp;
+
+
+    /*
+    CONSTRUCTORS
+     */
+
+
+    /**
+     * Create a reader of a shared region.
+     * @param buffer the shared region (at least SharedStatePublisher.SIZE bytes)
+     */
+    public SharedStateReader(ByteBuffer buffer) {
+        this(buffer, DEFAULT_MAX_ATTEMPTS);
+    }
+
+
+    /**
+     * Create a reader of a shared region.
+     * @param buffer the shared region (at least SharedStatePublisher.SIZE bytes)
+     * @param maxAttempts number of attempts before giving up when the state is being written
+     */
+    public SharedStateReader(ByteBuffer buffer, int maxAttempts) {
+        if (buffer.capacity() < SharedStatePublisher.SIZE) {
+            throw new IllegalArgumentException("the shared region needs at least " + SharedStatePublisher.SIZE + " bytes");
+        }
+
+        mBuffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        mMaxAttempts = Math.max(1, maxAttempts);
+    }
+
+
+    /**
+     * Create a reader of a memory-mapped file written by SharedStatePublisher.map.
+     * @param file the file shared with the publisher
+     * @return the reader of this file
+     * @throws IOException if the file can not be opened or mapped
+     */
+    public static SharedStateReader map(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            // the mapping stays valid once the file is closed
+            return new SharedStateReader(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, SharedStatePublisher.SIZE));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+
+    /*
+    READ
+     */
+
+
+    /**
+     * Copy the latest published state into this reader.
+     * @return False if there is no valid state (not published yet, unknown layout or still
+     * being written after all the attempts), otherwise True and the getters return the new state
+     */
+    public boolean read() {
+        for (int attempt = 0; attempt < mMaxAttempts; attempt++) {
+            int before = mBuffer.getInt(SharedStatePublisher.OFFSET_SEQUENCE);
+            SharedStatePublisher.fullFence();
+
+            if ((before & 1) != 0) {
+                // being written
+                Thread.yield();
+                continue;
+            }
+
+            if (mBuffer.getInt(SharedStatePublisher.OFFSET_MAGIC) != SharedStatePublisher.MAGIC
+                    || mBuffer.getInt(SharedStatePublisher.OFFSET_VERSION) != SharedStatePublisher.VERSION) {
+                return false;
+            }
+
+            int angle = mBuffer.getInt(SharedStatePublisher.OFFSET_ANGLE);
+            int strength = mBuffer.getInt(SharedStatePublisher.OFFSET_STRENGTH);
+            int x = mBuffer.getInt(SharedStatePublisher.OFFSET_X);
+            int y = mBuffer.getInt(SharedStatePublisher.OFFSET_Y);
+            long timestamp = mBuffer.getLong(SharedStatePublisher.OFFSET_TIMESTAMP);
+
+            SharedStatePublisher.fullFence();
+            int after = mBuffer.getInt(SharedStatePublisher.OFFSET_SEQUENCE);
+
+            if (before == after) {
+                mSequence = after;
+                mAngle = angle;
+                mStrength = strength;
+                mX = x;
+                mY = y;
+                mTimestamp = timestamp;
+                return true;
+            }
+
+            Thread.yield();
+        }
+        return false;
+    }
+
+
+    /*
+    GETTERS
+     */
+
+
+    /**
+     * Return the sequence of the latest state read, which changes with each published state
+     * @return the sequence (even)
+     */
+    public int getSequence() {
+        return mSequence;
+    }
+
+
+    public int getAngle() {
+        return mAngle;
+    }
+
+
+    public int getStrength() {
+        return mStrength;
+    }
+
+
+    public int getNormalizedX() {
+        return mX;
+    }
+
+
+    public int getNormalizedY() {
+        return mY;
+    }
+
+
+    /**
+     * Return the time of the latest state read
+     * @return time in nanoseconds (uptime clock of the publisher)
+     */
+    public long getTimestampNanos() {
+        return mTimestamp;
+    }
+}
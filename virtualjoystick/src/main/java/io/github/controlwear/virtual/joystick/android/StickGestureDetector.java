@@ -0,0 +1,443 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+/**
+ * Detect gestures on the touch samples of a joystick: long press by multiple pointers,
+ * double tap, flick (with its release velocity) and hold at the border.
+ *
+ * Every gesture is evaluated from the time and the position of the samples (not from the
+ * number of samples), so it behaves the same whatever the touch rate of the screen.
+ * Nothing is posted: timed gestures are detected on the next sample or on {@link #update(long)},
+ * which should be called at {@link #getNextDeadline()} to detect them on time.
+ * All the methods must be called from the same thread (the main thread for a JoystickView).
+ */
+public class StickGestureDetector {
+
+
+    /*
+    INTERFACES
+    */
+
+
+    /**
+     * Interface definition for callbacks to be invoked when a gesture is detected
+     */
+    public interface OnGestureListener {
+
+        /**
+         * Called when the joystick has been touched and held long enough by multiple pointers
+         */
+        void onMultipleLongPress();
+
+        /**
+         * Called when the joystick has been tapped twice
+         */
+        void onDoubleTap();
+
+        /**
+         * Called when the joystick has been released while moving fast
+         * @param angle direction of the release (counter-clock, 0 is right)
+         * @param velocity speed of the release in pixels per second
+         */
+        void onFlick(int angle, float velocity);
+
+        /**
+         * Called when the button has been held at the border long enough
+         * @param angle angle of the button
+         */
+        void onHoldAtBorder(int angle);
+    }
+
+
+    /**
+     * Empty implementation of OnGestureListener, to override only the gestures needed
+     */
+    public static class SimpleOnGestureListener implements OnGestureListener {
+
+        @Override
+        public void onMultipleLongPress() {
+        }
+
+        @Override
+        public void onDoubleTap() {
+        }
+
+        @Override
+        public void onFlick(int angle, float velocity) {
+        }
+
+        @Override
+        public void onHoldAtBorder(int angle) {
+        }
+    }
+
+
+    /*
+    CONSTANTS
+    */
+
+    // same values as the action of a MotionEvent (so it could be used without Android)
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+    public static final int ACTION_POINTER_DOWN = 5;
+    public static final int ACTION_POINTER_UP = 6;
+
+    /**
+     * Returned by getNextDeadline when no timed gesture is pending
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * Number of samples kept to compute the release velocity
+     */
+    private static final int VELOCITY_SAMPLES = 8;
+
+    /**
+     * Only the samples of this last period are used to compute the release velocity
+     */
+    private static final long VELOCITY_WINDOW = 100; // in milliseconds
+
+    private static final int DEFAULT_LONG_PRESS_TIMEOUT = 1000; // in milliseconds
+    private static final int DEFAULT_TAP_TIMEOUT = 300; // in milliseconds
+    private static final int DEFAULT_DOUBLE_TAP_TIMEOUT = 300; // in milliseconds
+    private static final int DEFAULT_HOLD_AT_BORDER_TIMEOUT = 500; // in milliseconds
+    private static final int DEFAULT_TOUCH_SLOP = 8; // in pixels
+    private static final int DEFAULT_DOUBLE_TAP_SLOP = 100; // in pixels
+    private static final int DEFAULT_MIN_FLICK_VELOCITY = 1000; // in pixels per second
+
+
+    private final OnGestureListener mListener;
+
+    // THRESHOLDS
+    private long mLongPressTimeout = DEFAULT_LONG_PRESS_TIMEOUT;
+    private long mTapTimeout = DEFAULT_TAP_TIMEOUT;
+    private long mDoubleTapTimeout = DEFAULT_DOUBLE_TAP_TIMEOUT;
+    private long mHoldAtBorderTimeout = DEFAULT_HOLD_AT_BORDER_TIMEOUT;
+    private float mTouchSlop = DEFAULT_TOUCH_SLOP;
+    private float mDoubleTapSlop = DEFAULT_DOUBLE_TAP_SLOP;
+    private float mMinFlickVelocity = DEFAULT_MIN_FLICK_VELOCITY;
+
+    // MULTIPLE LONG PRESS
+    private boolean mMultiplePressArmed;
+    private long mMultiplePressTime;
+    private float mMultiplePressX;
+    private float mMultiplePressY;
+    private float mMultiplePressSecondX;
+    private float mMultiplePressSecondY;
+
+    // TAP
+    private boolean mTapCandidate;
+    private boolean mSecondTap;
+    private long mDownTime;
+    private float mDownX;
+    private float mDownY;
+    private boolean mPreviousTapValid;
+    private long mPreviousTapUpTime;
+    private float mPreviousTapX;
+    private float mPreviousTapY;
+
+    // FLICK
+    private final long[] mSampleTimes = new long[VELOCITY_SAMPLES];
+    private final float[] mSampleX = new float[VELOCITY_SAMPLES];
+    private final float[] mSampleY = new float[VELOCITY_SAMPLES];
+    private int mSampleNewest = -1;
+    private int mSampleCount;
+    private boolean mSinglePointer;
+
+    // HOLD AT BORDER
+    private boolean mHoldArmed;
+    private long mHoldTime = Long.MIN_VALUE;
+    private float mHoldX;
+    private float mHoldY;
+
+
+    /*
+    CONSTRUCTORS
+     */
+
+
+    /**
+     * Create a detector with the default thresholds.
+     * @param listener The callbacks invoked when a gesture is detected
+     */
+    public StickGestureDetector(OnGestureListener listener) {
+        mListener = listener;
+    }
+
+
+    /*
+    SETTERS
+     */
+
+
+    /**
+     * @param timeout time in milliseconds multiple pointers have to be held to be a long press
+     */
+    public void setLongPressTimeout(long timeout) {
+        mLongPressTimeout = timeout;
+    }
+
+
+    /**
+     * @param timeout maximum time in milliseconds between the down and the up of a tap
+     */
+    public void setTapTimeout(long timeout) {
+        mTapTimeout = timeout;
+    }
+
+
+    /**
+     * @param timeout maximum time in milliseconds between the first tap up and the second tap down
+     */
+    public void setDoubleTapTimeout(long timeout) {
+        mDoubleTapTimeout = timeout;
+    }
+
+
+    /**
+     * @param timeout time in milliseconds the button has to be held at the border
+     */
+    public void setHoldAtBorderTimeout(long timeout) {
+        mHoldAtBorderTimeout = timeout;
+    }
+
+
+    /**
+     * @param slop distance in pixels a pointer could move and still be a tap or a long press
+     */
+    public void setTouchSlop(float slop) {
+        mTouchSlop = slop;
+    }
+
+
+    /**
+     * @param slop maximum distance in pixels between the two taps of a double tap
+     */
+    public void setDoubleTapSlop(float slop) {
+        mDoubleTapSlop = slop;
+    }
+
+
+    /**
+     * @param velocity minimum release speed in pixels per second to be a flick
+     */
+    public void setMinFlickVelocity(float velocity) {
+        mMinFlickVelocity = velocity;
+    }
+
+
+    /*
+    SAMPLES
+     */
+
+
+    /**
+     * Process a touch sample.
+     * @param action masked action of the sample (same values as MotionEvent)
+     * @param pointerCount number of pointers of the sample
+     * @param x position of the first pointer on the X axis
+     * @param y position of the first pointer on the Y axis
+     * @param secondX position of the second pointer on the X axis (same as x with a single pointer)
+     * @param secondY position of the second pointer on the Y axis (same as y with a single pointer)
+     * @param buttonX position of the button relative to the center on the X axis
+     * @param buttonY position of the button relative to the center on the Y axis (downward)
+     * @param atBorder True if the button is on the border
+     * @param time time of the sample in milliseconds
+     */
+    public void onTouchEvent(int action, int pointerCount, float x, float y, float secondX, float secondY,
+                             float buttonX, float buttonY, boolean atBorder, long time) {
+        switch (action) {
+            case ACTION_DOWN:
+                mTapCandidate = true;
+                mSecondTap = mPreviousTapValid
+                        && time - mPreviousTapUpTime <= mDoubleTapTimeout
+                        && distance(x, y, mPreviousTapX, mPreviousTapY) <= mDoubleTapSlop;
+                mDownTime = time;
+                mDownX = x;
+                mDownY = y;
+
+                mSampleCount = 0;
+                mSinglePointer = true;
+                mMultiplePressArmed = false;
+                mHoldArmed = false;
+                mHoldTime = Long.MIN_VALUE;
+                break;
+
+            case ACTION_POINTER_DOWN:
+                // when the second finger touch
+                if (pointerCount == 2) {
+                    mMultiplePressArmed = true;
+                    mMultiplePressTime = time;
+                    mMultiplePressX = x;
+                    mMultiplePressY = y;
+                    mMultiplePressSecondX = secondX;
+                    mMultiplePressSecondY = secondY;
+                }
+                mTapCandidate = false;
+                mSinglePointer = false;
+                break;
+
+            case ACTION_MOVE:
+                // any of the two pointers moving cancels the long press
+                if (mMultiplePressArmed && pointerCount >= 2
+                        && (distance(x, y, mMultiplePressX, mMultiplePressY) > mTouchSlop
+                        || distance(secondX, secondY, mMultiplePressSecondX, mMultiplePressSecondY) > mTouchSlop)) {
+                    mMultiplePressArmed = false;
+                }
+                if (mTapCandidate && distance(x, y, mDownX, mDownY) > mTouchSlop) {
+                    mTapCandidate = false;
+                }
+                break;
+
+            case ACTION_POINTER_UP:
+                // when the last multiple touch is released
+                if (pointerCount == 2) {
+                    mMultiplePressArmed = false;
+                }
+                break;
+
+            case ACTION_UP:
+                addVelocitySample(x, y, time);
+                onUp(x, y, time);
+                mMultiplePressArmed = false;
+                mHoldArmed = false;
+                mHoldTime = Long.MIN_VALUE;
+                return;
+
+            case ACTION_CANCEL:
+                mTapCandidate = false;
+                mPreviousTapValid = false;
+                mMultiplePressArmed = false;
+                mHoldArmed = false;
+                mHoldTime = Long.MIN_VALUE;
+                return;
+        }
+
+        addVelocitySample(x, y, time);
+        updateHoldAtBorder(buttonX, buttonY, atBorder, time);
+        update(time);
+    }
+
+
+    /**
+     * Detect the gestures depending only on time (long press and hold at the border) when there
+     * is no new sample, e.g. while the pointers are held perfectly still.
+     * @param time current time in milliseconds (same clock as the samples)
+     */
+    public void update(long time) {
+        if (mMultiplePressArmed && time - mMultiplePressTime >= mLongPressTimeout) {
+            mMultiplePressArmed = false;
+            mListener.onMultipleLongPress();
+        }
+
+        if (mHoldArmed && time - mHoldTime >= mHoldAtBorderTimeout) {
+            mHoldArmed = false;
+            mListener.onHoldAtBorder(angle(mHoldX, mHoldY));
+        }
+    }
+
+
+    /**
+     * Return the time at which the next timed gesture (long press or hold at the border)
+     * would be detected if nothing changes, to call {@link #update(long)} at that time.
+     * @return time in milliseconds (same clock as the samples) or NO_DEADLINE
+     */
+    public long getNextDeadline() {
+        long deadline = NO_DEADLINE;
+
+        if (mMultiplePressArmed) {
+            deadline = Math.min(deadline, mMultiplePressTime + mLongPressTimeout);
+        }
+
+        if (mHoldArmed) {
+            deadline = Math.min(deadline, mHoldTime + mHoldAtBorderTimeout);
+        }
+
+        return deadline;
+    }
+
+
+    private void onUp(float x, float y, long time) {
+        // double tap (or first tap of a double tap)
+        if (mTapCandidate && time - mDownTime <= mTapTimeout) {
+            if (mSecondTap) {
+                mPreviousTapValid = false;
+                mListener.onDoubleTap();
+            } else {
+                mPreviousTapValid = true;
+                mPreviousTapUpTime = time;
+                mPreviousTapX = x;
+                mPreviousTapY = y;
+            }
+        } else {
+            mPreviousTapValid = false;
+        }
+
+        // flick, from the oldest sample in the velocity window to the release
+        if (mSinglePointer && mSampleCount > 1) {
+            int oldest = mSampleNewest;
+            for (int i = 1; i < mSampleCount; i++) {
+                int previous = (mSampleNewest - i + VELOCITY_SAMPLES) % VELOCITY_SAMPLES;
+                if (time - mSampleTimes[previous] > VELOCITY_WINDOW) {
+                    break;
+                }
+                oldest = previous;
+            }
+
+            long duration = time - mSampleTimes[oldest];
+            if (duration > 0) {
+                float dx = x - mSampleX[oldest];
+                float dy = y - mSampleY[oldest];
+                float velocity = distance(dx, dy, 0, 0) * 1000 / duration;
+
+                if (velocity >= mMinFlickVelocity) {
+                    mListener.onFlick(angle(dx, dy), velocity);
+                }
+            }
+        }
+    }
+
+
+    private void addVelocitySample(float x, float y, long time) {
+        mSampleNewest = (mSampleNewest + 1) % VELOCITY_SAMPLES;
+        mSampleTimes[mSampleNewest] = time;
+        mSampleX[mSampleNewest] = x;
+        mSampleY[mSampleNewest] = y;
+        if (mSampleCount < VELOCITY_SAMPLES) {
+            mSampleCount++;
+        }
+    }
+
+
+    private void updateHoldAtBorder(float buttonX, float buttonY, boolean atBorder, long time) {
+        if (!atBorder) {
+            mHoldArmed = false;
+            mHoldTime = Long.MIN_VALUE;
+            return;
+        }
+
+        // (re)start the hold when reaching the border or moving along it
+        if (mHoldTime == Long.MIN_VALUE || distance(buttonX, buttonY, mHoldX, mHoldY) > mTouchSlop) {
+            mHoldArmed = true;
+            mHoldTime = time;
+            mHoldX = buttonX;
+            mHoldY = buttonY;
+        }
+    }
+
+
+    private static float distance(float x1, float y1, float x2, float y2) {
+        return (float) Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+    }
+
+
+    /**
+     * Angle following the 360° counter-clock protractor rules (with a downward Y axis)
+     */
+    private static int angle(float dx, float dy) {
+        int angle = (int) Math.toDegrees(Math.atan2(-dy, dx));
+        return angle < 0 ? angle + 360 : angle;
+    }
+}
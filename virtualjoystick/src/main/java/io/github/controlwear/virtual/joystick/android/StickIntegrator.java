@@ -0,0 +1,205 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+/**
+ * Integrate the deflection of a stick into a position (rate mode), e.g. for camera panning
+ * or cursor control: the further the button from the center, the faster the position moves.
+ *
+ * The elapsed time is consumed by a fixed-timestep accumulator and each deflection applies
+ * from the time it has been set. The integration is only committed up to the latest input:
+ * the position at a later time is extrapolated without being committed, so an input delivered
+ * after that time (but timestamped before it) still applies from its own time. The position
+ * only depends on the timestamped inputs and not on how often (or how late) it is read.
+ * This class is not thread-safe, use it from a single thread.
+ */
+public class StickIntegrator {
+
+
+    /**
+     * Default integration step
+     */
+    private static final long DEFAULT_STEP = 1000000L; // in nanoseconds (1ms)
+
+    /**
+     * Default rate at full deflection
+     */
+    private static final float DEFAULT_MAX_RATE = 100.0f; // in units per second
+
+
+    private final long mStep;
+    private final double mStepSeconds;
+
+    // RESPONSE
+    private float mMaxRate = DEFAULT_MAX_RATE;
+    private float mExpo = 0.0f;
+
+    // STATE
+    private double mRateX;
+    private double mRateY;
+    private double mX;
+    private double mY;
+    private long mTime = Long.MIN_VALUE;
+    private long mAccumulator;
+
+
+    /*
+    CONSTRUCTORS
+     */
+
+
+    /**
+     * Create an integrator with a 1ms step.
+     */
+    public StickIntegrator() {
+        this(DEFAULT_STEP);
+    }
+
+
+    /**
+     * Create an integrator.
+     * @param stepNanos duration of a step in nanoseconds
+     */
+    public StickIntegrator(long stepNanos) {
+        if (stepNanos <= 0) {
+            throw new IllegalArgumentException("step must be positive");
+        }
+
+        mStep = stepNanos;
+        mStepSeconds = stepNanos / 1e9;
+    }
+
+
+    /*
+    SETTERS
+     */
+
+
+    /**
+     * Set the rate at full deflection. Applies to the next deflection set.
+     * @param maxRate units per second when the button is on the border
+     */
+    public void setMaxRate(float maxRate) {
+        mMaxRate = maxRate;
+    }
+
+
+    /**
+     * Set the response curve, from linear (0) to cubic (1): a higher value gives a finer
+     * control around the center while keeping the same rate at full deflection.
+     * Applies to the next deflection set.
+     * @param expo value between 0.0 and 1.0 (limited to this range)
+     */
+    public void setExpo(float expo) {
+        mExpo = Math.max(0.0f, Math.min(1.0f, expo));
+    }
+
+
+    /**
+     * Move the position at the latest input (e.g. back to the origin), keeping the time and the deflection.
+     * @param x new position on the X axis
+     * @param y new position on the Y axis
+     */
+    public void setPosition(double x, double y) {
+        mX = x;
+        mY = y;
+    }
+
+
+    /*
+    INTEGRATION
+     */
+
+
+    /**
+     * Set a new deflection from the given time. The previous deflection is integrated up to it,
+     * by whole steps (the remaining time is kept for the next input). An input older than the
+     * latest one applies from the time of the latest one.
+     * @param timeNanos time of the new deflection in nanoseconds
+     * @param x deflection on the X axis between -1.0 and 1.0 (right is positive)
+     * @param y deflection on the Y axis between -1.0 and 1.0 (up is positive)
+     */
+    public void setDeflection(long timeNanos, float x, float y) {
+        if (mTime == Long.MIN_VALUE) {
+            mTime = timeNanos;
+        } else if (timeNanos > mTime) {
+            long steps = getSteps(timeNanos);
+            mAccumulator += timeNanos - mTime - steps * mStep;
+            mTime = timeNanos;
+
+            // the deflection is constant between two inputs, so the steps are applied all at once
+            mX += mRateX * mStepSeconds * steps;
+            mY += mRateY * mStepSeconds * steps;
+        }
+
+        mRateX = curve(x) * mMaxRate;
+        mRateY = curve(y) * mMaxRate;
+    }
+
+
+    /*
+    GETTERS
+     */
+
+
+    /**
+     * @return position on the X axis at the time of the latest input
+     */
+    public double getX() {
+        return mX;
+    }
+
+
+    /**
+     * @return position on the Y axis at the time of the latest input
+     */
+    public double getY() {
+        return mY;
+    }
+
+
+    /**
+     * @return True if the latest deflection is not zero, so the position keeps moving
+     */
+    public boolean isMoving() {
+        return mRateX != 0 || mRateY != 0;
+    }
+
+
+    /**
+     * Return the position on the X axis at the given time, extrapolated from the latest input
+     * with the current deflection (nothing is committed).
+     * @param timeNanos current time in nanoseconds
+     * @return the position at this time, or at the latest input if the time is before it
+     */
+    public double getX(long timeNanos) {
+        return mX + mRateX * mStepSeconds * getSteps(timeNanos);
+    }
+
+
+    /**
+     * Return the position on the Y axis at the given time, extrapolated from the latest input
+     * with the current deflection (nothing is committed).
+     * @param timeNanos current time in nanoseconds
+     * @return the position at this time, or at the latest input if the time is before it
+     */
+    public double getY(long timeNanos) {
+        return mY + mRateY * mStepSeconds * getSteps(timeNanos);
+    }
+
+
+    /**
+     * Number of whole steps between the latest input (plus the remaining time) and the given time.
+     */
+    private long getSteps(long timeNanos) {
+        if (mTime == Long.MIN_VALUE || timeNanos <= mTime) {
+            return 0;
+        }
+        return (mAccumulator + timeNanos - mTime) / mStep;
+    }
+
+
+    private double curve(float deflection) {
+        double d = Math.max(-1.0f, Math.min(1.0f, deflection));
+        return d * (1 - mExpo) + d * d * d * mExpo;
+    }
+}
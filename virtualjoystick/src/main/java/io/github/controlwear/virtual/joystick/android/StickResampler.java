@@ -0,0 +1,161 @@
+package io.github.controlwear.virtual.joystick.android;
+
+
+/**
+ * Small ring buffer of timestamped button positions which can be sampled at any time.
+ * The position between two samples is linearly interpolated, before the oldest sample
+ * it is the oldest one and after the newest sample it is held on the newest one.
+ *
+ * Samples are added from the touch events and read from the resample loop,
+ * so every access is synchronized.
+ */
+public class StickResampler {
+
+
+    /**
+     * Default number of samples kept in the ring buffer
+     */
+    private static final int DEFAULT_CAPACITY = 32;
+
+
+    // SAMPLES
+    private final long[] mTimes;
+    private final float[] mX;
+    private final float[] mY;
+
+    /**
+     * Index of the newest sample in the ring buffer
+     */
+    private int mNewest = -1;
+
+    /**
+     * Number of samples in the ring buffer (up to its capacity)
+     */
+    private int mCount = 0;
+
+
+    /*
+    CONSTRUCTORS
+     */
+
+
+    /**
+     * Create a resampler keeping the 32 latest samples.
+     */
+    public StickResampler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * Create a resampler keeping the latest samples.
+     * @param capacity number of samples kept (at least 2 to interpolate)
+     */
+    public StickResampler(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+
+        mTimes = new long[capacity];
+        mX = new float[capacity];
+        mY = new float[capacity];
+    }
+
+
+    /*
+    SAMPLES
+     */
+
+
+    /**
+     * Add a new position. A sample older than the newest one is ignored and a sample with
+     * the same time replaces the newest one, so the buffer is always sorted by time.
+     * @param timeNanos time of the sample in nanoseconds
+     * @param x position on the X axis
+     * @param y position on the Y axis
+     */
+    public synchronized void addSample(long timeNanos, float x, float y) {
+        if (mCount > 0) {
+            long newestTime = mTimes[mNewest];
+            if (timeNanos < newestTime) {
+                return;
+            }
+
+            if (timeNanos == newestTime) {
+                mX[mNewest] = x;
+                mY[mNewest] = y;
+                return;
+            }
+        }
+
+        mNewest = (mNewest + 1) % mTimes.length;
+        mTimes[mNewest] = timeNanos;
+        mX[mNewest] = x;
+        mY[mNewest] = y;
+
+        if (mCount < mTimes.length) {
+            mCount++;
+        }
+    }
+
+
+    /**
+     * Remove all the samples (e.g. when a new touch begins).
+     */
+    public synchronized void clear() {
+        mNewest = -1;
+        mCount = 0;
+    }
+
+
+    /**
+     * Return the time of the newest sample.
+     * @return time in nanoseconds, or Long.MIN_VALUE if there is no sample
+     */
+    public synchronized long getNewestTime() {
+        return mCount == 0 ? Long.MIN_VALUE : mTimes[mNewest];
+    }
+
+
+    /**
+     * Compute the position at the given time.
+     * @param timeNanos time of the position in nanoseconds
+     * @param out array receiving the X (index 0) and Y (index 1) positions
+     * @return False if there is no sample yet (out is not modified), otherwise True
+     */
+    public synchronized boolean resample(long timeNanos, float[] out) {
+        if (mCount == 0) {
+            return false;
+        }
+
+        // look for the newest sample at or before the given time
+        int capacity = mTimes.length;
+        int before = mNewest;
+        int i = 0;
+        while (i < mCount && mTimes[before] > timeNanos) {
+            before = (before - 1 + capacity) % capacity;
+            i++;
+        }
+
+        // before the oldest sample: hold the oldest one
+        if (i == mCount) {
+            int oldest = (mNewest - mCount + 1 + capacity) % capacity;
+            out[0] = mX[oldest];
+            out[1] = mY[oldest];
+            return true;
+        }
+
+        // after the newest sample: hold the newest one
+        if (before == mNewest) {
+            out[0] = mX[before];
+            out[1] = mY[before];
+            return true;
+        }
+
+        int after = (before + 1) % capacity;
+        float t = (float) (timeNanos - mTimes[before]) / (mTimes[after] - mTimes[before]);
+        out[0] = mX[before] + (mX[after] - mX[before]) * t;
+        out[1] = mY[before] + (mY[after] - mY[before]) * t;
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveUpdatePolicyTest {
+
+    private static final long LOOP_INTERVAL = 50;
+
+    private final AdaptiveUpdatePolicy mPolicy = new AdaptiveUpdatePolicy(200, 500, 3000);
+
+    @Test
+    public void getInterval_followsTheTimeWithoutMotion() {
+        // moving: regular interval
+        assertEquals(LOOP_INTERVAL, mPolicy.getInterval(LOOP_INTERVAL, 1000, 1010, 900, false));
+
+        // held still: slow interval
+        assertEquals(200, mPolicy.getInterval(LOOP_INTERVAL, 1000, 1010, 500, false));
+
+        // held still long enough: stopped
+        assertEquals(AdaptiveUpdatePolicy.STOPPED, mPolicy.getInterval(LOOP_INTERVAL, 5000, 5010, 2000, false));
+    }
+
+    @Test
+    public void getInterval_motionDuringTheWait_backToRegularInterval() {
+        // the slow or stopped wait started at 5000 and the button moved at 5100
+        assertEquals(LOOP_INTERVAL, mPolicy.getInterval(LOOP_INTERVAL, 5000, 5100, 5100, false));
+
+        // the motion is before the start of the wait, the slow interval is kept
+        assertEquals(200, mPolicy.getInterval(LOOP_INTERVAL, 5000, 5100, 4400, false));
+    }
+
+    @Test
+    public void getSkippedTicks_countsRegularTicksNotSent() {
+        assertEquals(0, AdaptiveUpdatePolicy.getSkippedTicks(LOOP_INTERVAL, 1000, 1050));
+        assertEquals(0, AdaptiveUpdatePolicy.getSkippedTicks(LOOP_INTERVAL, 1000, 1020)); // woken up early
+        assertEquals(3, AdaptiveUpdatePolicy.getSkippedTicks(LOOP_INTERVAL, 1000, 1200));
+        assertEquals(59, AdaptiveUpdatePolicy.getSkippedTicks(LOOP_INTERVAL, 1000, 4000));
+    }
+
+    @Test
+    public void getSkippedTicks_overAStillPeriod() {
+        // still from 0: regular ticks until 500, then slow ticks every 200 until 3000, then stopped
+        long skipped = 0;
+        long start = 0;
+        long lastMotion = 0;
+        while (true) {
+            long interval = mPolicy.getInterval(LOOP_INTERVAL, start, start, lastMotion, false);
+            if (interval == AdaptiveUpdatePolicy.STOPPED) {
+                break;
+            }
+            skipped += AdaptiveUpdatePolicy.getSkippedTicks(LOOP_INTERVAL, start, start + interval);
+            start += interval;
+        }
+
+        // the last slow tick at 3100 stops the loop: 62 regular ticks, 10 regular + 13 slow sent
+        assertEquals(3100, start);
+        assertEquals(39, skipped);
+    }
+
+    @Test
+    public void getInterval_busy_keepsTheRegularInterval() {
+        // held still long enough to stop, but still busy
+        assertEquals(LOOP_INTERVAL, mPolicy.getInterval(LOOP_INTERVAL, 5000, 5010, 0, true));
+        assertEquals(LOOP_INTERVAL, mPolicy.getInterval(LOOP_INTERVAL, 5000, 5010, 4000, true));
+    }
+
+    @Test
+    public void loop_rateModeHeldDeflected_keepsSendingThePosition() {
+        // the button is pushed to the border at 0 then held perfectly still (no more motion)
+        StickIntegrator integrator = new StickIntegrator();
+        integrator.setMaxRate(100);
+        integrator.setDeflection(0, 1, 0);
+
+        long start = 0;
+        long skipped = 0;
+        double x = 0;
+        while (start < 10000) {
+            long interval = mPolicy.getInterval(LOOP_INTERVAL, start, start, 0, integrator.isMoving());
+            assertNotEquals(AdaptiveUpdatePolicy.STOPPED, interval);
+
+            skipped += AdaptiveUpdatePolicy.getSkippedTicks(LOOP_INTERVAL, start, start + interval);
+            start += interval;
+            x = integrator.getX(start * 1000000L);
+        }
+
+        // every regular tick sent, the position followed the whole 10s
+        assertEquals(0, skipped);
+        assertEquals(1000, x, 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_zeroDelay_throws() {
+        new AdaptiveUpdatePolicy(200, 0, 3000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_negativeInterval_throws() {
+        new AdaptiveUpdatePolicy(-1, 500, 3000);
+    }
+}
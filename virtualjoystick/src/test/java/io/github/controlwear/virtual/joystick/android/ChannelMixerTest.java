@@ -0,0 +1,104 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChannelMixerTest {
+
+    @Test
+    public void mix_centeredSticks_givesMiddleOfRange() {
+        ChannelMixer mixer = new ChannelMixer(2, 4);
+        mixer.setWeight(0, 0, 1.0f);
+        mixer.setStick(0, 0, 0);
+
+        assertArrayEquals(new int[]{1500, 1500, 1500, 1500}, mixer.mix(new int[4]));
+    }
+
+    @Test
+    public void mix_fullDeflection_reachesRangeLimits() {
+        ChannelMixer mixer = new ChannelMixer(1, 2);
+        mixer.setWeight(0, 0, 1.0f); // X
+        mixer.setWeight(1, 1, 1.0f); // Y
+
+        mixer.setStick(0, 0, 100); // right
+        assertArrayEquals(new int[]{2000, 1500}, mixer.mix(new int[2]));
+
+        mixer.setStick(0, 270, 100); // down
+        assertArrayEquals(new int[]{1500, 1000}, mixer.mix(new int[2]));
+    }
+
+    @Test
+    public void mix_matrix_sumsAndLimitsInputs() {
+        // elevon like mix: channel 0 = pitch + roll, channel 1 = pitch - roll
+        ChannelMixer mixer = new ChannelMixer(1, 2);
+        mixer.setWeight(0, 0, 1.0f);
+        mixer.setWeight(0, 1, 1.0f);
+        mixer.setWeight(1, 0, -1.0f);
+        mixer.setWeight(1, 1, 1.0f);
+
+        mixer.setInput(0, 0.5f);
+        mixer.setInput(1, 0.25f);
+        assertArrayEquals(new int[]{1875, 1375}, mixer.mix(new int[2]));
+
+        mixer.setInput(0, 1.0f);
+        mixer.setInput(1, 1.0f);
+        assertArrayEquals(new int[]{2000, 1500}, mixer.mix(new int[2]));
+    }
+
+    @Test
+    public void mix_reversedTrimmedAndCustomRange() {
+        ChannelMixer mixer = new ChannelMixer(1, 1);
+        mixer.setWeight(0, 0, 1.0f);
+        mixer.setRange(0, -100, 100);
+        mixer.setReversed(0, true);
+        mixer.setTrim(0, 10);
+
+        mixer.setInput(0, 0.5f);
+        assertEquals(-40, mixer.mix(new int[1])[0]);
+
+        // trim can not push the output out of its range
+        mixer.setInput(0, -1.0f);
+        assertEquals(100, mixer.mix(new int[1])[0]);
+    }
+
+    @Test
+    public void mix_roundsSymmetricallyAroundTheCenter() {
+        ChannelMixer mixer = new ChannelMixer(1, 1);
+        mixer.setWeight(0, 0, 1.0f);
+
+        float[] inputs = {0.001f, 0.3f, 0.999f};
+        for (float input : inputs) {
+            mixer.setInput(0, input);
+            int high = mixer.mix(new int[1])[0];
+            mixer.setInput(0, -input);
+            int low = mixer.mix(new int[1])[0];
+
+            assertEquals("input " + input, 1500 - low, high - 1500);
+        }
+
+        // rounded to the nearest, not down
+        mixer.setInput(0, 0.999f);
+        assertEquals(2000, mixer.mix(new int[1])[0]);
+        mixer.setInput(0, -0.001f);
+        assertEquals(1500, mixer.mix(new int[1])[0]);
+    }
+
+    @Test
+    public void mix_reusesOutputBuffer() {
+        ChannelMixer mixer = new ChannelMixer(1, 1);
+        int[] out = new int[1];
+
+        assertSame(out, mixer.mix(out));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setRange_invalid_throws() {
+        new ChannelMixer(1, 1).setRange(0, 2000, 1000);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setWeight_unknownInput_throws() {
+        new ChannelMixer(1, 1).setWeight(0, 2, 1.0f);
+    }
+}
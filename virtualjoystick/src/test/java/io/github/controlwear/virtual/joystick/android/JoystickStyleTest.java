@@ -0,0 +1,135 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class JoystickStyleTest {
+
+    private static final int SIZE = 400;
+    private static final float DELTA = 1e-6f;
+
+    private JoystickView createJoystickView(AttributeSet attrs) {
+        JoystickView joystickView = new JoystickView(RuntimeEnvironment.application, attrs);
+        joystickView.measure(
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        joystickView.layout(0, 0, SIZE, SIZE);
+        return joystickView;
+    }
+
+    @Test
+    public void applyStyle_recomputesRadiiAndRescalesBitmap() {
+        JoystickView joystickView = createJoystickView(null);
+        Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+
+        joystickView.applyStyle(new JoystickStyle.Builder()
+                .setButtonSizeRatio(0.5f)
+                .setBackgroundSizeRatio(0.5f)
+                .setBorderWidth(10)
+                .setButtonBitmap(bitmap)
+                .build());
+
+        RecordingCanvas canvas = new RecordingCanvas();
+        joystickView.onDraw(canvas);
+
+        // background and border from the new ratio and border width
+        assertEquals(95, canvas.mCircleRadius[0], DELTA);
+        assertEquals(100, canvas.mCircleRadius[1], DELTA);
+        assertEquals(2, canvas.mCircleCount);
+
+        // button image rescaled from the original bitmap to the new button size
+        assertEquals(1, canvas.mBitmapCount);
+        assertEquals(200, canvas.mLastBitmap.getWidth());
+        assertEquals(200, canvas.mLastBitmap.getHeight());
+        assertNotNull(canvas.mLastBitmapPaint);
+    }
+
+    @Test
+    public void getStyle_returnsTheAppliedStyle() {
+        JoystickView joystickView = createJoystickView(null);
+        JoystickStyle style = new JoystickStyle.Builder()
+                .setButtonColor(Color.RED)
+                .setBorderColor(Color.BLUE)
+                .setBorderAlpha(128)
+                .setBackgroundColor(Color.GREEN)
+                .setBorderWidth(7)
+                .setButtonSizeRatio(0.3f)
+                .setBackgroundSizeRatio(0.9f)
+                .setFixedCenter(false)
+                .setAutoReCenterButton(false)
+                .setButtonStickToBorder(true)
+                .setButtonDirection(1)
+                .setLowLatency(true)
+                .build();
+
+        joystickView.applyStyle(style);
+        JoystickStyle current = joystickView.getStyle();
+
+        assertEquals(Color.RED, current.getButtonColor());
+        assertEquals(Color.argb(128, 0, 0, 255), current.getBorderColor());
+        assertEquals(128, current.getBorderAlpha());
+        assertEquals(Color.GREEN, current.getBackgroundColor());
+        assertEquals(7, current.getBorderWidth());
+        assertEquals(0.3f, current.getButtonSizeRatio(), DELTA);
+        assertEquals(0.9f, current.getBackgroundSizeRatio(), DELTA);
+        assertFalse(current.isFixedCenter());
+        assertFalse(current.isAutoReCenterButton());
+        assertTrue(current.isButtonStickToBorder());
+        assertEquals(1, current.getButtonDirection());
+        assertTrue(current.isLowLatency());
+    }
+
+    @Test
+    public void fromAttributes_outOfRangeRatios_fallBackToDefaults() {
+        AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.JV_buttonSizeRatio, "0%")
+                .addAttribute(R.attr.JV_backgroundSizeRatio, "150%")
+                .build();
+
+        JoystickView joystickView = createJoystickView(attrs);
+
+        assertEquals(0.25f, joystickView.getButtonSizeRatio(), DELTA);
+        assertEquals(0.75f, joystickView.getmBackgroundSizeRatio(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_outOfRangeRatio_throws() {
+        new JoystickStyle.Builder().setButtonSizeRatio(1.5f);
+    }
+
+    /**
+     * Canvas only recording the shapes drawn.
+     */
+    private static class RecordingCanvas extends Canvas {
+        final float[] mCircleRadius = new float[3];
+        int mCircleCount;
+        int mBitmapCount;
+        Bitmap mLastBitmap;
+        Paint mLastBitmapPaint;
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+            mCircleRadius[mCircleCount++] = radius;
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+            mBitmapCount++;
+            mLastBitmap = bitmap;
+            mLastBitmapPaint = paint;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocation and time budgets of the hot paths of JoystickView (onTouchEvent, the ticks
+ * of the loop and onDraw), driven by scripted MotionEvent on the JVM with Robolectric.
+ *
+ * Allocations are measured on the test thread only, after a warm-up, and must be zero in
+ * total. Times are generous budgets (a fraction of a 60Hz frame) to catch an accidental
+ * heavy work in a hot path without being flaky on a slow machine.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class JoystickViewPerformanceTest {
+
+    private static final int SIZE = 400;
+    private static final int ITERATIONS = 10000;
+    private static final int BATCH_SIZE = 4; // samples per touch event, 1ms apart
+
+    // budgets
+    private static final long ALLOCATION_BUDGET = 0; // in bytes per call
+    private static final long TOUCH_TIME_BUDGET = 100000; // in nanoseconds per call
+    private static final long TICK_TIME_BUDGET = 50000; // in nanoseconds per call
+    private static final long DRAW_TIME_BUDGET = 100000; // in nanoseconds per call
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private TickJoystickView mJoystickView;
+    private long mDownTime;
+    private MotionEvent[] mMoves; // one new event per call, warm-up and measure
+    private long mChecksum;
+    private long mMoveCount;
+    private volatile long mResampledChecksum; // written by the resample thread only
+
+    private final JoystickView.OnMoveListener mMoveListener = new JoystickView.OnMoveListener() {
+        @Override
+        public void onMove(int angle, int strength) {
+            mChecksum += angle + strength;
+            mMoveCount++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mJoystickView = new TickJoystickView();
+        mJoystickView.measure(
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        mJoystickView.layout(0, 0, SIZE, SIZE);
+
+        // every optional listener and mode, so their paths are measured as well
+        mJoystickView.setOnMoveListener(mMoveListener);
+        mJoystickView.setOnResampledMoveListener(new JoystickView.OnResampledMoveListener() {
+            @Override
+            public void onResampledMove(int angle, int strength, long timestampNanos) {
+                mResampledChecksum += angle + strength;
+            }
+        });
+        mJoystickView.setOnRateMoveListener(new JoystickView.OnRateMoveListener() {
+            @Override
+            public void onRateMove(float x, float y, float dx, float dy) {
+                mChecksum += (long) dx;
+            }
+        });
+        mJoystickView.setOnGestureListener(new StickGestureDetector.SimpleOnGestureListener());
+        mJoystickView.setSharedStatePublisher(new SharedStatePublisher(ByteBuffer.allocateDirect(SharedStatePublisher.SIZE)));
+        mJoystickView.setLowLatency(true);
+        mJoystickView.setAdaptiveUpdate(true);
+
+        mDownTime = SystemClock.uptimeMillis();
+        mMoves = createMoves(mDownTime, 2 * ITERATIONS);
+
+        MotionEvent down = MotionEvent.obtain(mDownTime, mDownTime, MotionEvent.ACTION_DOWN, SIZE / 2, SIZE / 2, 0);
+        mJoystickView.onTouchEvent(down);
+        down.recycle();
+    }
+
+    @After
+    public void tearDown() {
+        long time = mDownTime + (mMoves.length + 1) * BATCH_SIZE;
+        MotionEvent up = MotionEvent.obtain(mDownTime, time, MotionEvent.ACTION_UP, SIZE / 2, SIZE / 2, 0);
+        mJoystickView.onTouchEvent(up);
+        up.recycle();
+
+        for (MotionEvent move : mMoves) {
+            move.recycle();
+        }
+    }
+
+    /**
+     * Create the MOVE events of a finger going round and beyond the border, created before
+     * the measure so every measured call handles a new event: strictly increasing times and
+     * BATCH_SIZE samples each (the latest one and the ones batched before it, 1ms apart).
+     */
+    private static MotionEvent[] createMoves(long downTime, int count) {
+        MotionEvent[] moves = new MotionEvent[count];
+        for (int i = 0; i < count; i++) {
+            long time = downTime + (long) i * BATCH_SIZE + 1;
+            for (int sample = 0; sample < BATCH_SIZE; sample++) {
+                double angle = 2 * Math.PI * (i * BATCH_SIZE + sample) / 256;
+                float radius = SIZE * (sample % 2 == 0 ? 0.3f : 0.6f);
+                float x = (float) (SIZE / 2 + radius * Math.cos(angle));
+                float y = (float) (SIZE / 2 + radius * Math.sin(angle));
+
+                if (sample == 0) {
+                    moves[i] = MotionEvent.obtain(downTime, time, MotionEvent.ACTION_MOVE, x, y, 0);
+                } else {
+                    moves[i].addBatch(time + sample, x, y, 1, 1, 0);
+                }
+            }
+        }
+        return moves;
+    }
+
+    @Test
+    public void onTouchEvent_move_withinBudgets() {
+        Runnable touch = new Runnable() {
+            int mIndex;
+
+            @Override
+            public void run() {
+                mJoystickView.onTouchEvent(mMoves[mIndex++]);
+            }
+        };
+
+        assertWithinBudgets("onTouchEvent", touch, TOUCH_TIME_BUDGET);
+    }
+
+    @Test
+    public void tick_withinBudgets() {
+        mJoystickView.onTouchEvent(mMoves[0]);
+        mJoystickView.mTickThread = Thread.currentThread();
+        long moveCount = mMoveCount;
+
+        // the Runnable posted and its dispatch to the listeners (run straight away)
+        Runnable tick = new Runnable() {
+            @Override
+            public void run() {
+                mJoystickView.tick();
+            }
+        };
+
+        assertWithinBudgets("tick", tick, TICK_TIME_BUDGET);
+        assertEquals(2 * ITERATIONS, mMoveCount - moveCount); // warm-up and measure
+    }
+
+    @Test
+    public void onDraw_circle_withinBudgets() {
+        final RecordingCanvas canvas = new RecordingCanvas();
+
+        assertWithinBudgets("onDraw", draw(canvas), DRAW_TIME_BUDGET);
+        assertEquals(3L * 2 * ITERATIONS, canvas.mCircleCount); // background, border and button
+    }
+
+    @Test
+    public void onDraw_image_withinBudgets() {
+        Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        mJoystickView.setButtonDrawable(new BitmapDrawable(RuntimeEnvironment.application.getResources(), bitmap));
+        final RecordingCanvas canvas = new RecordingCanvas();
+
+        assertWithinBudgets("onDraw", draw(canvas), DRAW_TIME_BUDGET);
+        assertEquals(2L * ITERATIONS, canvas.mBitmapCount);
+        assertNotNull("the button image needs its paint", canvas.mLastBitmapPaint);
+    }
+
+    @Test
+    public void onDraw_withSurfaceRenderer_drawsNothing() {
+        JoystickSurfaceView surfaceView = new JoystickSurfaceView(RuntimeEnvironment.application);
+        surfaceView.setJoystickView(mJoystickView);
+        RecordingCanvas canvas = new RecordingCanvas();
+
+        mJoystickView.onDraw(canvas);
+
+        assertEquals(0, canvas.mCircleCount + canvas.mBitmapCount);
+    }
+
+    private Runnable draw(final Canvas canvas) {
+        return new Runnable() {
+            int mIndex;
+
+            @Override
+            public void run() {
+                // the button moves between two draws, as in a real gesture
+                mJoystickView.onTouchEvent(mMoves[mIndex++]);
+                mJoystickView.onDraw(canvas);
+            }
+        };
+    }
+
+    /**
+     * Run the action ITERATIONS times to warm up, then ITERATIONS times measured.
+     */
+    private void assertWithinBudgets(String name, Runnable action, long timeBudget) {
+        long time = assertNoAllocation(name, action, ITERATIONS);
+
+        assertTrue(name + " takes " + time / ITERATIONS + "ns per call",
+                time / ITERATIONS <= timeBudget);
+    }
+
+    /**
+     * Run the action iterations times to warm up, then iterations times measured.
+     * @return the time of the measured iterations in nanoseconds
+     */
+    private long assertNoAllocation(String name, Runnable action, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            action.run();
+        }
+
+        // cost of the measure itself
+        long overhead = allocatedBytes();
+        overhead = allocatedBytes() - overhead;
+
+        long start = System.nanoTime();
+        long allocated = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            action.run();
+        }
+        allocated = allocatedBytes() - allocated - overhead;
+        long time = System.nanoTime() - start;
+
+        // on the total, so a small allocation every few calls is not hidden by the average
+        assertTrue(name + " allocates " + allocated + " bytes in " + iterations + " calls",
+                allocated <= ALLOCATION_BUDGET * iterations);
+        return time;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * JoystickView running the posted Runnable straight away on the thread measuring the ticks,
+     * and dropping the ones of its own loop thread (which keeps running while touched).
+     */
+    private static class TickJoystickView extends JoystickView {
+        volatile Thread mTickThread;
+
+        TickJoystickView() {
+            super(RuntimeEnvironment.application);
+        }
+
+        @Override
+        public boolean post(Runnable action) {
+            if (Thread.currentThread() == mTickThread) {
+                action.run();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Canvas only counting the draws, so the Robolectric canvas does not allocate in the measure.
+     */
+    private static class RecordingCanvas extends Canvas {
+        long mCircleCount;
+        long mBitmapCount;
+        Paint mLastBitmapPaint;
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+            mCircleCount++;
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+            mBitmapCount++;
+            mLastBitmapPaint = paint;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class JoystickViewTest {
+
+    private static final int SIZE = 400;
+    private static final int CENTER = SIZE / 2;
+    private static final int BORDER_RADIUS = 150; // default background ratio of 0.75
+
+    private JoystickView mJoystickView;
+    private long mDownTime;
+
+    private final List<Thread> mMoveThreads = new ArrayList<>();
+    private final List<int[]> mMoves = new ArrayList<>();
+
+    private final JoystickView.OnMoveListener mMoveListener = new JoystickView.OnMoveListener() {
+        @Override
+        public void onMove(int angle, int strength) {
+            mMoveThreads.add(Thread.currentThread());
+            mMoves.add(new int[] {angle, strength});
+        }
+    };
+
+    private final List<ResampledMove> mResampledMoves = new ArrayList<>();
+
+    private final JoystickView.OnResampledMoveListener mResampledMoveListener = new JoystickView.OnResampledMoveListener() {
+        @Override
+        public void onResampledMove(int angle, int strength, long timestampNanos) {
+            synchronized (mResampledMoves) {
+                mResampledMoves.add(new ResampledMove(angle, strength));
+            }
+        }
+    };
+
+    @Before
+    public void setUp() {
+        // the Runnable posted by the loop thread are kept out of the tests
+        ShadowLooper.pauseMainLooper();
+
+        mJoystickView = layout(new JoystickView(RuntimeEnvironment.application));
+        mDownTime = SystemClock.uptimeMillis();
+    }
+
+    @After
+    public void tearDown() {
+        touch(MotionEvent.ACTION_UP, CENTER, CENTER);
+    }
+
+    private static <T extends View> T layout(T view) {
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SIZE, SIZE);
+        return view;
+    }
+
+    private void touch(int action, float x, float y) {
+        touch(action, x, y, SystemClock.uptimeMillis());
+    }
+
+    private void touch(int action, float x, float y, long time) {
+        MotionEvent event = MotionEvent.obtain(mDownTime, time, action, x, y, 0);
+        mJoystickView.onTouchEvent(event);
+        event.recycle();
+    }
+
+    @Test
+    public void requestRedraw_handsTheClampedPositionToTheSurface() {
+        JoystickSurfaceView surfaceView = layout(new JoystickSurfaceView(RuntimeEnvironment.application));
+        surfaceView.setJoystickView(mJoystickView);
+
+        touch(MotionEvent.ACTION_DOWN, CENTER, CENTER);
+        touch(MotionEvent.ACTION_MOVE, SIZE, CENTER); // beyond the border
+
+        JoystickRenderState state = new JoystickRenderState();
+        mJoystickView.copyRenderState(state);
+
+        assertEquals(CENTER + BORDER_RADIUS, state.mButtonX);
+        assertEquals(CENTER, state.mButtonY);
+        assertEquals(CENTER, state.mCenterX);
+        assertEquals(CENTER, state.mCenterY);
+        assertEquals(BORDER_RADIUS, state.mBorderRadius);
+        assertEquals(0, state.mOffsetX);
+        assertEquals(0, state.mOffsetY);
+    }
+
+    @Test
+    public void onTouchEvent_lowLatency_sendsTheClampedValuesOnce() {
+        mJoystickView.setOnMoveListener(mMoveListener);
+        mJoystickView.setLowLatency(true);
+
+        // the first touch beyond the border: a single value, limited to the border
+        touch(MotionEvent.ACTION_DOWN, SIZE - 10, CENTER);
+        assertEquals(1, mMoves.size());
+        assertArrayEquals(new int[] {0, 100}, mMoves.get(0));
+
+        // a move: sent straight away from the touch event, without waiting for the loop
+        touch(MotionEvent.ACTION_MOVE, CENTER, 0);
+        assertEquals(2, mMoves.size());
+        assertArrayEquals(new int[] {90, 100}, mMoves.get(1));
+        assertSame(Thread.currentThread(), mMoveThreads.get(1));
+    }
+
+    @Test
+    public void resample_endsWithTheReleasePosition() throws InterruptedException {
+        mJoystickView.setOnResampledMoveListener(mResampledMoveListener);
+
+        touch(MotionEvent.ACTION_DOWN, CENTER, CENTER);
+        touch(MotionEvent.ACTION_MOVE, SIZE, CENTER);
+        touch(MotionEvent.ACTION_UP, SIZE, CENTER);
+
+        // the resample thread sends the release position once interrupted, then exits
+        ResampledMove last = waitForStableLastMove();
+        assertEquals(0, last.mStrength);
+    }
+
+    @Test
+    public void resample_newTouch_previousThreadNeverSendsIt() throws InterruptedException {
+        mJoystickView.setOnResampledMoveListener(mResampledMoveListener);
+
+        // touch A to the right, never released (e.g. the release went to another view)
+        touch(MotionEvent.ACTION_DOWN, SIZE, CENTER);
+        Thread threadA = waitForResampledMove().mThread;
+
+        // touch B to the top
+        mDownTime = SystemClock.uptimeMillis();
+        touch(MotionEvent.ACTION_DOWN, CENTER, CENTER);
+        touch(MotionEvent.ACTION_MOVE, CENTER, 0);
+        touch(MotionEvent.ACTION_UP, CENTER, 0);
+        waitForStableLastMove();
+
+        synchronized (mResampledMoves) {
+            boolean sentByB = false;
+            for (ResampledMove move : mResampledMoves) {
+                if (move.mThread == threadA) {
+                    assertEquals(0, move.mAngle);
+                } else if (move.mAngle == 90) {
+                    sentByB = true;
+                }
+            }
+            assertTrue(sentByB);
+        }
+    }
+
+    @Test
+    public void resample_newTouch_doesNotWaitForThePreviousThread() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // the listener of touch A blocks its resample thread
+        mJoystickView.setOnResampledMoveListener(new JoystickView.OnResampledMoveListener() {
+            @Override
+            public void onResampledMove(int angle, int strength, long timestampNanos) {
+                entered.countDown();
+
+                // stuck until released (at most 2s), even when interrupted
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+                boolean interrupted = false;
+                while (release.getCount() > 0 && System.nanoTime() < end) {
+                    try {
+                        release.await(end - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        touch(MotionEvent.ACTION_DOWN, SIZE, CENTER);
+        assertTrue(entered.await(1, TimeUnit.SECONDS));
+
+        // the new touch returns while the previous thread is still in its listener
+        long start = System.nanoTime();
+        touch(MotionEvent.ACTION_DOWN, CENTER, CENTER);
+        long elapsed = System.nanoTime() - start;
+        release.countDown();
+
+        assertTrue("ACTION_DOWN took " + elapsed + "ns", elapsed < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void onTouchEvent_batchedMoves_seenByTheGestureDetector() {
+        final int[] doubleTapCount = new int[1];
+        mJoystickView.setOnGestureListener(new StickGestureDetector.SimpleOnGestureListener() {
+            @Override
+            public void onDoubleTap() {
+                doubleTapCount[0]++;
+            }
+        });
+
+        // the first touch goes to the border and back within a single batched MOVE,
+        // so it is not a tap even though its DOWN, MOVE and UP are at the same place
+        touch(MotionEvent.ACTION_DOWN, CENTER, CENTER, mDownTime);
+        MotionEvent move = MotionEvent.obtain(mDownTime, mDownTime + 10, MotionEvent.ACTION_MOVE, SIZE, CENTER, 0);
+        move.addBatch(mDownTime + 20, CENTER, CENTER, 1, 1, 0);
+        mJoystickView.onTouchEvent(move);
+        move.recycle();
+        touch(MotionEvent.ACTION_UP, CENTER, CENTER, mDownTime + 30);
+
+        // a tap right after
+        mDownTime += 60;
+        touch(MotionEvent.ACTION_DOWN, CENTER, CENTER, mDownTime);
+        touch(MotionEvent.ACTION_UP, CENTER, CENTER, mDownTime + 10);
+
+        assertEquals(0, doubleTapCount[0]);
+    }
+
+    /**
+     * Wait for the first resampled move sent.
+     */
+    private ResampledMove waitForResampledMove() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            synchronized (mResampledMoves) {
+                if (!mResampledMoves.isEmpty()) {
+                    return mResampledMoves.get(0);
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("no resampled move");
+    }
+
+    /**
+     * Wait (in real time, the resample thread uses System.nanoTime) until no new resampled
+     * move is sent for a while, and return the last one.
+     */
+    private ResampledMove waitForStableLastMove() throws InterruptedException {
+        waitForResampledMove();
+
+        int count = -1;
+        while (true) {
+            Thread.sleep(100);
+            synchronized (mResampledMoves) {
+                if (mResampledMoves.size() == count) {
+                    return mResampledMoves.get(count - 1);
+                }
+                count = mResampledMoves.size();
+            }
+        }
+    }
+
+    /**
+     * A resampled move and the thread which sent it.
+     */
+    private static class ResampledMove {
+        final Thread mThread = Thread.currentThread();
+        final int mAngle;
+        final int mStrength;
+
+        ResampledMove(int angle, int strength) {
+            mAngle = angle;
+            mStrength = strength;
+        }
+    }
+}
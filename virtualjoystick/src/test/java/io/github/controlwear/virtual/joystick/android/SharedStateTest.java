@@ -0,0 +1,102 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class SharedStateTest {
+
+    @Test
+    public void read_beforePublish_hasNoState() throws Exception {
+        File file = File.createTempFile("joystick", ".state");
+        file.deleteOnExit();
+
+        assertFalse(new SharedStateReader(ByteBuffer.allocateDirect(SharedStatePublisher.SIZE)).read());
+
+        SharedStatePublisher.map(file);
+        SharedStateReader reader = SharedStateReader.map(file);
+        assertTrue(reader.read());
+        assertEquals(0, reader.getStrength());
+    }
+
+    @Test
+    public void read_throughMappedFile_returnsLatestState() throws Exception {
+        File file = File.createTempFile("joystick", ".state");
+        file.deleteOnExit();
+
+        // two separate mappings of the same file, as in two processes
+        SharedStatePublisher publisher = SharedStatePublisher.map(file);
+        SharedStateReader reader = SharedStateReader.map(file);
+
+        publisher.publish(90, 42, 50, 12, 123456789L);
+        assertTrue(reader.read());
+        int sequence = reader.getSequence();
+        assertEquals(90, reader.getAngle());
+        assertEquals(42, reader.getStrength());
+        assertEquals(50, reader.getNormalizedX());
+        assertEquals(12, reader.getNormalizedY());
+        assertEquals(123456789L, reader.getTimestampNanos());
+
+        publisher.publish(180, 100, 0, 50, 987654321L);
+        assertTrue(reader.read());
+        assertEquals(180, reader.getAngle());
+        assertEquals(sequence + 2, reader.getSequence());
+    }
+
+    @Test
+    public void read_whileBeingWritten_neverReturnsATornState() throws Exception {
+        File file = File.createTempFile("joystick", ".state");
+        file.deleteOnExit();
+
+        final SharedStatePublisher publisher = SharedStatePublisher.map(file);
+        SharedStateReader reader = SharedStateReader.map(file);
+        publisher.publish(-1, 0, 1, 2, 3L);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // every field is derived from i so a mix of two states is detected
+                for (int i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                    publisher.publish(i, i + 1, i + 2, i + 3, i + 4L);
+                }
+            }
+        });
+        writer.start();
+
+        try {
+            int valid = 0;
+            for (int i = 0; i < 200000; i++) {
+                if (reader.read()) {
+                    valid++;
+                    int angle = reader.getAngle();
+                    assertEquals(angle + 1, reader.getStrength());
+                    assertEquals(angle + 2, reader.getNormalizedX());
+                    assertEquals(angle + 3, reader.getNormalizedY());
+                    assertEquals(angle + 4L, reader.getTimestampNanos());
+                    assertEquals(0, reader.getSequence() & 1);
+                }
+            }
+            assertTrue(valid > 0);
+        } finally {
+            writer.interrupt();
+            writer.join();
+        }
+    }
+
+    @Test
+    public void read_unknownLayout_fails() {
+        ByteBuffer buffer = ByteBuffer.allocate(SharedStatePublisher.SIZE);
+        new SharedStatePublisher(buffer);
+        buffer.putInt(0, 0xDEADBEEF);
+
+        assertFalse(new SharedStateReader(buffer).read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void publisher_tooSmallRegion_throws() {
+        new SharedStatePublisher(ByteBuffer.allocate(SharedStatePublisher.SIZE - 1));
+    }
+}
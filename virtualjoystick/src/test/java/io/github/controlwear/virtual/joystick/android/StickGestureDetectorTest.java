@@ -0,0 +1,220 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.github.controlwear.virtual.joystick.android.StickGestureDetector.*;
+import static org.junit.Assert.*;
+
+public class StickGestureDetectorTest {
+
+    private int mLongPressCount;
+    private int mDoubleTapCount;
+    private int mFlickCount;
+    private int mFlickAngle;
+    private float mFlickVelocity;
+    private int mHoldCount;
+    private int mHoldAngle;
+
+    private StickGestureDetector mDetector;
+
+    @Before
+    public void setUp() {
+        mDetector = new StickGestureDetector(new OnGestureListener() {
+            @Override
+            public void onMultipleLongPress() {
+                mLongPressCount++;
+            }
+
+            @Override
+            public void onDoubleTap() {
+                mDoubleTapCount++;
+            }
+
+            @Override
+            public void onFlick(int angle, float velocity) {
+                mFlickCount++;
+                mFlickAngle = angle;
+                mFlickVelocity = velocity;
+            }
+
+            @Override
+            public void onHoldAtBorder(int angle) {
+                mHoldCount++;
+                mHoldAngle = angle;
+            }
+        });
+        mDetector.setLongPressTimeout(1000);
+        mDetector.setTapTimeout(300);
+        mDetector.setDoubleTapTimeout(300);
+        mDetector.setHoldAtBorderTimeout(500);
+        mDetector.setTouchSlop(8);
+        mDetector.setDoubleTapSlop(100);
+        mDetector.setMinFlickVelocity(1000);
+    }
+
+    private void touch(int action, int pointers, float x, float y, long time) {
+        mDetector.onTouchEvent(action, pointers, x, y, x, y, 0, 0, false, time);
+    }
+
+    @Test
+    public void multipleLongPress_sameDurationWhateverTheEventRate() {
+        // 240Hz panel: many small moves within the slop, long press after 1s
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        touch(ACTION_POINTER_DOWN, 2, 100, 100, 10);
+        for (long t = 14; t < 1020; t += 4) {
+            touch(ACTION_MOVE, 2, 100 + (t % 3), 100, t);
+        }
+        assertEquals(1, mLongPressCount);
+
+        // 60Hz panel: same gesture, same result
+        touch(ACTION_UP, 1, 100, 100, 2000);
+        touch(ACTION_DOWN, 1, 100, 100, 5000);
+        touch(ACTION_POINTER_DOWN, 2, 100, 100, 5010);
+        for (long t = 5026; t < 6020; t += 16) {
+            touch(ACTION_MOVE, 2, 100 + (t % 3), 100, t);
+        }
+        assertEquals(2, mLongPressCount);
+    }
+
+    @Test
+    public void multipleLongPress_fromUpdateWithoutEvents() {
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        touch(ACTION_POINTER_DOWN, 2, 100, 100, 10);
+
+        mDetector.update(900);
+        assertEquals(0, mLongPressCount);
+
+        mDetector.update(1010);
+        mDetector.update(1500);
+        assertEquals(1, mLongPressCount);
+    }
+
+    @Test
+    public void multipleLongPress_cancelledByDistanceOrPointerUp() {
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        touch(ACTION_POINTER_DOWN, 2, 100, 100, 10);
+        touch(ACTION_MOVE, 2, 120, 100, 20);
+        mDetector.update(2000);
+        assertEquals(0, mLongPressCount);
+
+        touch(ACTION_POINTER_DOWN, 2, 120, 100, 3000);
+        touch(ACTION_POINTER_UP, 2, 120, 100, 3100);
+        mDetector.update(5000);
+        assertEquals(0, mLongPressCount);
+    }
+
+    @Test
+    public void multipleLongPress_cancelledBySecondPointerMoving() {
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        mDetector.onTouchEvent(ACTION_POINTER_DOWN, 2, 100, 100, 200, 100, 0, 0, false, 10);
+        mDetector.onTouchEvent(ACTION_MOVE, 2, 100, 100, 240, 100, 0, 0, false, 20);
+        mDetector.update(2000);
+
+        assertEquals(0, mLongPressCount);
+    }
+
+    @Test
+    public void getNextDeadline_earliestPendingGesture() {
+        assertEquals(NO_DEADLINE, mDetector.getNextDeadline());
+
+        // hold at the border armed at 100, long press armed at 200
+        mDetector.onTouchEvent(ACTION_DOWN, 1, 0, 0, 0, 0, 0, 0, false, 0);
+        mDetector.onTouchEvent(ACTION_MOVE, 1, 0, 0, 0, 0, 50, 0, true, 100);
+        assertEquals(600, mDetector.getNextDeadline());
+        mDetector.onTouchEvent(ACTION_POINTER_DOWN, 2, 0, 0, 0, 0, 50, 0, true, 200);
+        assertEquals(600, mDetector.getNextDeadline());
+
+        // the hold is detected, the long press remains
+        mDetector.update(600);
+        assertEquals(1, mHoldCount);
+        assertEquals(1200, mDetector.getNextDeadline());
+
+        mDetector.update(1200);
+        assertEquals(1, mLongPressCount);
+        assertEquals(NO_DEADLINE, mDetector.getNextDeadline());
+    }
+
+    @Test
+    public void doubleTap_twoShortCloseTaps() {
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        touch(ACTION_UP, 1, 101, 100, 80);
+        touch(ACTION_DOWN, 1, 110, 105, 250);
+        touch(ACTION_UP, 1, 110, 105, 320);
+
+        assertEquals(1, mDoubleTapCount);
+
+        // a third tap starts a new double tap
+        touch(ACTION_DOWN, 1, 110, 105, 400);
+        touch(ACTION_UP, 1, 110, 105, 450);
+        assertEquals(1, mDoubleTapCount);
+    }
+
+    @Test
+    public void doubleTap_notWhenTooSlowOrMoved() {
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        touch(ACTION_UP, 1, 100, 100, 80);
+        touch(ACTION_DOWN, 1, 100, 100, 500); // too late
+        touch(ACTION_UP, 1, 100, 100, 550);
+        assertEquals(0, mDoubleTapCount);
+
+        touch(ACTION_DOWN, 1, 100, 100, 1000);
+        touch(ACTION_MOVE, 1, 150, 100, 1020); // not a tap anymore
+        touch(ACTION_UP, 1, 150, 100, 1040);
+        assertEquals(0, mDoubleTapCount);
+    }
+
+    @Test
+    public void flick_fastReleaseGivesAngleAndVelocity() {
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        touch(ACTION_MOVE, 1, 100, 100, 200);
+        touch(ACTION_MOVE, 1, 100, 80, 220);
+        touch(ACTION_MOVE, 1, 100, 60, 240);
+        touch(ACTION_UP, 1, 100, 40, 260);
+
+        assertEquals(1, mFlickCount);
+        assertEquals(90, mFlickAngle); // upward
+        assertEquals(1000, mFlickVelocity, 1);
+    }
+
+    @Test
+    public void flick_notForSlowRelease() {
+        touch(ACTION_DOWN, 1, 100, 100, 0);
+        touch(ACTION_MOVE, 1, 105, 100, 50);
+        touch(ACTION_MOVE, 1, 110, 100, 100);
+        touch(ACTION_UP, 1, 115, 100, 150);
+
+        assertEquals(0, mFlickCount);
+    }
+
+    @Test
+    public void holdAtBorder_afterTimeoutAtSamePlace() {
+        mDetector.onTouchEvent(ACTION_DOWN, 1, 0, 0, 0, 0, 0, 0, false, 0);
+        mDetector.onTouchEvent(ACTION_MOVE, 1, 0, 0, 0, 0, 0, -50, true, 100);
+        mDetector.onTouchEvent(ACTION_MOVE, 1, 0, 0, 0, 0, 2, -50, true, 400);
+        assertEquals(0, mHoldCount);
+
+        mDetector.update(650);
+        assertEquals(1, mHoldCount);
+        assertEquals(90, mHoldAngle);
+
+        // not again while still held there
+        mDetector.update(2000);
+        assertEquals(1, mHoldCount);
+    }
+
+    @Test
+    public void holdAtBorder_restartedWhenLeavingOrMovingAlongBorder() {
+        mDetector.onTouchEvent(ACTION_DOWN, 1, 0, 0, 0, 0, 0, 0, false, 0);
+        mDetector.onTouchEvent(ACTION_MOVE, 1, 0, 0, 0, 0, 50, 0, true, 100);
+        mDetector.onTouchEvent(ACTION_MOVE, 1, 0, 0, 0, 0, 40, 0, false, 300);
+        mDetector.onTouchEvent(ACTION_MOVE, 1, 0, 0, 0, 0, 50, 0, true, 400);
+        mDetector.onTouchEvent(ACTION_MOVE, 1, 0, 0, 0, 0, 0, 50, true, 700);
+        mDetector.update(1100);
+        assertEquals(0, mHoldCount);
+
+        mDetector.update(1200);
+        assertEquals(1, mHoldCount);
+        assertEquals(270, mHoldAngle);
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StickIntegratorTest {
+
+    private static final long MS = 1000000L;
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void getPosition_fullDeflection_movesAtMaxRate() {
+        StickIntegrator integrator = new StickIntegrator();
+        integrator.setMaxRate(100);
+        integrator.setDeflection(0, 1, -0.5f);
+
+        assertEquals(200, integrator.getX(2000 * MS), DELTA);
+        assertEquals(-100, integrator.getY(2000 * MS), DELTA);
+
+        // extrapolated only, nothing committed after the latest input
+        assertEquals(0, integrator.getX(), DELTA);
+    }
+
+    @Test
+    public void getPosition_sameInputs_samePositionWhateverTheDispatchTiming() {
+        long[] inputTimes = {0, 130 * MS + 500, 410 * MS + 250000, 777 * MS};
+        float[] inputs = {0.5f, -1.0f, 0.25f, 0.0f};
+
+        // regular dispatch every 50ms
+        StickIntegrator regular = new StickIntegrator();
+        int next = 0;
+        for (long t = 0; t <= 1000 * MS; t += 50 * MS) {
+            while (next < inputTimes.length && inputTimes[next] <= t) {
+                regular.setDeflection(inputTimes[next], inputs[next], inputs[next]);
+                next++;
+            }
+            regular.getX(t);
+        }
+
+        // irregular dispatch, including late and repeated calls
+        StickIntegrator jittery = new StickIntegrator();
+        next = 0;
+        long[] dispatchTimes = {3 * MS, 3 * MS, 97 * MS, 130 * MS, 380 * MS + 7, 600 * MS, 601 * MS, 1000 * MS};
+        for (long t : dispatchTimes) {
+            while (next < inputTimes.length && inputTimes[next] <= t) {
+                jittery.setDeflection(inputTimes[next], inputs[next], inputs[next]);
+                next++;
+            }
+            jittery.getX(t);
+        }
+
+        assertEquals(regular.getX(1000 * MS), jittery.getX(1000 * MS), DELTA);
+        assertEquals(regular.getY(1000 * MS), jittery.getY(1000 * MS), DELTA);
+    }
+
+    @Test
+    public void getPosition_inputDeliveredAfterADispatch_appliesFromItsOwnTime() {
+        StickIntegrator onTime = new StickIntegrator();
+        onTime.setMaxRate(100);
+        onTime.setDeflection(0, 1, 0);
+        onTime.setDeflection(100 * MS, -1, 0);
+
+        // the input timestamped 100ms is only delivered after a dispatch at 116ms
+        StickIntegrator late = new StickIntegrator();
+        late.setMaxRate(100);
+        late.setDeflection(0, 1, 0);
+        assertEquals(11.6, late.getX(116 * MS), DELTA);
+        late.setDeflection(100 * MS, -1, 0);
+
+        assertEquals(onTime.getX(), late.getX(), DELTA);
+        assertEquals(onTime.getX(200 * MS), late.getX(200 * MS), DELTA);
+        assertEquals(0, late.getX(200 * MS), DELTA);
+    }
+
+    @Test
+    public void setExpo_softensSmallDeflectionsOnly() {
+        StickIntegrator integrator = new StickIntegrator();
+        integrator.setMaxRate(10);
+        integrator.setExpo(1);
+
+        integrator.setDeflection(0, 0.5f, 1);
+
+        assertEquals(1.25, integrator.getX(1000 * MS), DELTA); // 0.5^3 * 10
+        assertEquals(10, integrator.getY(1000 * MS), DELTA);
+    }
+
+    @Test
+    public void setDeflection_keepsTheRemainderOfPartialSteps() {
+        StickIntegrator integrator = new StickIntegrator(10 * MS);
+        integrator.setMaxRate(1000);
+        integrator.setDeflection(0, 1, 0);
+
+        integrator.setDeflection(15 * MS, 1, 0);
+        assertEquals(10, integrator.getX(), DELTA);
+
+        integrator.setDeflection(20 * MS, 1, 0);
+        assertEquals(20, integrator.getX(), DELTA);
+
+        integrator.setDeflection(10 * MS, 1, 0); // in the past, applies from 20ms
+        assertEquals(20, integrator.getX(), DELTA);
+        assertEquals(20, integrator.getX(5 * MS), DELTA);
+        assertEquals(30, integrator.getX(30 * MS), DELTA);
+    }
+
+    @Test
+    public void setPosition_resetsPositionOnly() {
+        StickIntegrator integrator = new StickIntegrator();
+        integrator.setDeflection(0, 1, 0);
+        integrator.setDeflection(1000 * MS, 1, 0);
+        integrator.setPosition(0, 0);
+
+        assertEquals(50, integrator.getX(1500 * MS), DELTA);
+    }
+
+    @Test
+    public void isMoving_followsTheDeflection() {
+        StickIntegrator integrator = new StickIntegrator();
+        assertFalse(integrator.isMoving());
+
+        integrator.setDeflection(0, 0, 0.1f);
+        assertTrue(integrator.isMoving());
+
+        integrator.setDeflection(10 * MS, 0, 0);
+        assertFalse(integrator.isMoving());
+    }
+}
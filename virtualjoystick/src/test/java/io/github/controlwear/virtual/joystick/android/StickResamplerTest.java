@@ -0,0 +1,92 @@
+package io.github.controlwear.virtual.joystick.android;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StickResamplerTest {
+
+    private static final float DELTA = 0.0001f;
+
+    @Test
+    public void resample_withoutSample_returnsFalse() {
+        StickResampler resampler = new StickResampler();
+        float[] out = {7, 7};
+
+        assertFalse(resampler.resample(0, out));
+        assertEquals(7, out[0], DELTA);
+        assertEquals(Long.MIN_VALUE, resampler.getNewestTime());
+    }
+
+    @Test
+    public void resample_betweenSamples_interpolates() {
+        StickResampler resampler = new StickResampler();
+        resampler.addSample(1000, 0, 10);
+        resampler.addSample(2000, 100, -10);
+        float[] out = new float[2];
+
+        assertTrue(resampler.resample(1250, out));
+        assertEquals(25, out[0], DELTA);
+        assertEquals(5, out[1], DELTA);
+    }
+
+    @Test
+    public void resample_outsideSamples_holdsOldestAndNewest() {
+        StickResampler resampler = new StickResampler();
+        resampler.addSample(1000, 1, 2);
+        resampler.addSample(2000, 3, 4);
+        float[] out = new float[2];
+
+        resampler.resample(500, out);
+        assertEquals(1, out[0], DELTA);
+        assertEquals(2, out[1], DELTA);
+
+        resampler.resample(5000, out);
+        assertEquals(3, out[0], DELTA);
+        assertEquals(4, out[1], DELTA);
+    }
+
+    @Test
+    public void addSample_pastCapacity_keepsLatestSamples() {
+        StickResampler resampler = new StickResampler(4);
+        for (int i = 0; i < 10; i++) {
+            resampler.addSample(i * 100, i, 0);
+        }
+        float[] out = new float[2];
+
+        // samples 0 to 5 have been overwritten, so earlier times hold sample 6
+        resampler.resample(0, out);
+        assertEquals(6, out[0], DELTA);
+
+        resampler.resample(750, out);
+        assertEquals(7.5f, out[0], DELTA);
+        assertEquals(900, resampler.getNewestTime());
+    }
+
+    @Test
+    public void addSample_outOfOrder_isIgnoredAndSameTimeReplaces() {
+        StickResampler resampler = new StickResampler();
+        resampler.addSample(1000, 1, 1);
+        resampler.addSample(500, 9, 9);
+        resampler.addSample(1000, 2, 2);
+        float[] out = new float[2];
+
+        resampler.resample(500, out);
+        assertEquals(2, out[0], DELTA);
+        assertEquals(1000, resampler.getNewestTime());
+    }
+
+    @Test
+    public void clear_removesAllSamples() {
+        StickResampler resampler = new StickResampler();
+        resampler.addSample(1000, 1, 1);
+        resampler.clear();
+
+        assertFalse(resampler.resample(1000, new float[2]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_tooSmallCapacity_throws() {
+        new StickResampler(1);
+    }
+}